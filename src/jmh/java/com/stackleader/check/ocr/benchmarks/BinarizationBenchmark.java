@@ -0,0 +1,99 @@
+package com.stackleader.check.ocr.benchmarks;
+
+import com.stackleader.check.ocr.preprocessing.OtsuStage;
+import com.stackleader.check.ocr.preprocessing.PipelineWorkspace;
+import com.stackleader.check.ocr.preprocessing.PixelBuffer;
+import com.stackleader.check.ocr.preprocessing.PreprocessingPipeline;
+import com.stackleader.check.ocr.preprocessing.ResolutionStage;
+import com.stackleader.check.ocr.preprocessing.SauvolaStage;
+import de.vorb.tesseract.tools.preprocessing.binarization.IntegralSauvola;
+import de.vorb.tesseract.tools.preprocessing.binarization.Otsu;
+import de.vorb.tesseract.tools.preprocessing.binarization.Sauvola;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Global thresholding against the local Sauvola thresholds, the windowed
+ * original and the integral image implementation the pipeline uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinarizationBenchmark {
+
+    /**
+     * A check scanned at 200 and 300 dpi and the size of a phone photo.
+     */
+    @Param({"200", "300", "667"})
+    public int dpi;
+
+    private BufferedImage image;
+    private final Otsu otsu = new Otsu();
+    private final Sauvola sauvola = new Sauvola();
+    private final IntegralSauvola integralSauvola = new IntegralSauvola();
+    private final PreprocessingPipeline pipeline = new PreprocessingPipeline(new SauvolaStage(integralSauvola));
+    private final PreprocessingPipeline normalizingPipeline = new PreprocessingPipeline(
+            new ResolutionStage(300, 6), new SauvolaStage(integralSauvola));
+    private final PreprocessingPipeline otsuPipeline = new PreprocessingPipeline(new OtsuStage());
+    private final PipelineWorkspace workspace = new PipelineWorkspace();
+
+    @Setup
+    public void setUp() {
+        image = SampleChecks.render(dpi, 0, 1);
+    }
+
+    @Benchmark
+    public BufferedImage otsu() {
+        return otsu.binarize(image);
+    }
+
+    @Benchmark
+    public BufferedImage sauvola() {
+        return sauvola.binarize(image);
+    }
+
+    @Benchmark
+    public BufferedImage integralSauvola() {
+        return integralSauvola.binarize(image);
+    }
+
+    /**
+     * Grayscale conversion and Sauvola into reused workspace buffers, as
+     * recognition runs them.
+     */
+    @Benchmark
+    public PixelBuffer sauvolaStage() {
+        return pipeline.run(image, workspace);
+    }
+
+    /**
+     * Grayscale conversion and Otsu, the binarization of the minimal quality
+     * level.
+     */
+    @Benchmark
+    public PixelBuffer otsuStage() {
+        return otsuPipeline.run(image, workspace);
+    }
+
+    /**
+     * Sauvola with frames above 300 dpi reduced first.
+     */
+    @Benchmark
+    public PixelBuffer normalizedSauvolaStage() {
+        return normalizingPipeline.run(image, workspace);
+    }
+}
@@ -0,0 +1,218 @@
+package com.stackleader.check.ocr.benchmarks;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.CubicCurve2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Kernel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Renders personal-size checks (6 by 2.75 inches) with an E13B line placed
+ * as ANSI X9 places it, then applies a {@link Distortion}.
+ */
+final class CheckGenerator {
+
+    private static final double WIDTH_INCHES = 6;
+    private static final double HEIGHT_INCHES = 2.75;
+    /**
+     * Bottom of the MICR characters above the bottom edge.
+     */
+    private static final double MICR_BASELINE_INCHES = 0.1875;
+    /**
+     * Right end of the MICR line from the right edge.
+     */
+    private static final double MICR_RIGHT_INCHES = 0.3125;
+    private static final Color PAPER = new Color(238, 234, 220);
+    private static final Color INK = new Color(30, 32, 48);
+    private static final Color SCANNER_BED = new Color(250, 250, 250);
+
+    private CheckGenerator() {
+    }
+
+    /**
+     * @param random source of the skew, the noise and the handwriting
+     */
+    static BufferedImage render(CheckSpec spec, Distortion distortion, Random random) {
+        return render(spec, distortion, distortion.getMaxSkew() * (2 * random.nextDouble() - 1), random);
+    }
+
+    /**
+     * @param skew clockwise rotation of the check, in degrees, instead of a
+     * random one within the distortion's maximum
+     */
+    static BufferedImage render(CheckSpec spec, Distortion distortion, double skew, Random random) {
+        final int dpi = distortion.getDpi();
+        final int width = (int) Math.round(WIDTH_INCHES * dpi);
+        final int height = (int) Math.round(HEIGHT_INCHES * dpi);
+        BufferedImage check = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = check.createGraphics();
+        paintBackground(g, distortion.getBackground(), width, height, dpi);
+        paintPrint(g, width, height, dpi, random);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setColor(Color.BLACK);
+        String line = spec.micrLine();
+        E13bFont.draw(g, line, width - (MICR_RIGHT_INCHES + E13bFont.width(line)) * dpi,
+                height - MICR_BASELINE_INCHES * dpi, dpi);
+        g.dispose();
+
+        double rotation = skew + (distortion.isUpsideDown() ? 180 : 0);
+        if (rotation != 0) {
+            check = rotate(check, rotation);
+        }
+        if (distortion.getBlurRadius() > 0) {
+            check = blur(check, distortion.getBlurRadius());
+        }
+        if (distortion.getNoise() > 0) {
+            addNoise(check, distortion.getNoise(), random);
+        }
+        if (distortion.getJpegQuality() > 0) {
+            check = jpeg(check, distortion.getJpegQuality());
+        }
+        return check;
+    }
+
+    private static void paintBackground(Graphics2D g, Distortion.Background background, int width, int height, int dpi) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        switch (background) {
+            case GRADIENT:
+                g.setPaint(new GradientPaint(0, 0, PAPER, width, height, PAPER.darker()));
+                g.fillRect(0, 0, width, height);
+                break;
+            case PATTERN:
+                g.setColor(PAPER);
+                g.fillRect(0, 0, width, height);
+                g.setColor(new Color(196, 206, 222));
+                g.setStroke(new BasicStroke(Math.max(1, dpi / 150f)));
+                double spacing = dpi / 25.0;
+                for (double y = -spacing; y < height + spacing; y += spacing) {
+                    Path2D wave = new Path2D.Double();
+                    wave.moveTo(0, y);
+                    for (int x = 0; x <= width; x += 4) {
+                        wave.lineTo(x, y + spacing * 0.8 * Math.sin(x * 2 * Math.PI / (dpi * 0.6)));
+                    }
+                    g.draw(wave);
+                }
+                break;
+            default:
+                g.setColor(PAPER);
+                g.fillRect(0, 0, width, height);
+        }
+    }
+
+    /**
+     * Printed and handwritten content above the MICR clear band.
+     */
+    private static void paintPrint(Graphics2D g, int width, int height, int dpi, Random random) {
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(INK);
+        g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, dpi / 9));
+        g.drawString("JOHN Q. SAMPLE", dpi / 4, dpi / 4);
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, dpi / 12));
+        g.drawString("1234 MAIN STREET", dpi / 4, dpi * 2 / 5);
+        g.drawString("ANYTOWN, ST 00000", dpi / 4, dpi / 2);
+        g.drawString("DATE", width - dpi * 2, dpi / 2);
+        g.drawString("PAY TO THE", dpi / 4, dpi);
+        g.drawString("ORDER OF", dpi / 4, dpi * 11 / 10);
+        g.drawString("DOLLARS", width - dpi * 3 / 4, dpi * 3 / 2);
+        g.drawString("FIRST SAMPLE BANK", dpi / 4, dpi * 17 / 10);
+        g.drawString("MEMO", dpi / 4, dpi * 2);
+        g.setStroke(new BasicStroke(Math.max(1, dpi / 200f)));
+        g.drawLine(width - dpi * 3 / 2, dpi / 2, width - dpi / 4, dpi / 2);
+        g.drawLine(dpi, dpi * 11 / 10, width - dpi * 3 / 2, dpi * 11 / 10);
+        g.drawRect(width - dpi * 5 / 4, dpi * 9 / 10, dpi, dpi / 4);
+        g.drawLine(dpi / 4, dpi * 3 / 2, width - dpi, dpi * 3 / 2);
+        g.drawLine(dpi * 3 / 4, dpi * 2, dpi * 3, dpi * 2);
+        g.drawLine(width - dpi * 5 / 2, dpi * 2, width - dpi / 4, dpi * 2);
+
+        // signature
+        g.setColor(new Color(20, 30, 110));
+        g.setStroke(new BasicStroke(Math.max(1, dpi / 100f), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        double x = width - dpi * 5 / 2.0;
+        for (int i = 0; i < 5; i++) {
+            double next = x + dpi * (0.2 + random.nextDouble() * 0.3);
+            g.draw(new CubicCurve2D.Double(x, dpi * 1.95, x + dpi * 0.1, dpi * (1.6 + random.nextDouble() * 0.2),
+                    next - dpi * 0.1, dpi * (2.05 + random.nextDouble() * 0.1), next, dpi * 1.9));
+            x = next;
+        }
+    }
+
+    private static BufferedImage rotate(BufferedImage check, double degrees) {
+        BufferedImage rotated = new BufferedImage(check.getWidth(), check.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rotated.createGraphics();
+        g.setColor(SCANNER_BED);
+        g.fillRect(0, 0, check.getWidth(), check.getHeight());
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.rotate(Math.toRadians(degrees), check.getWidth() / 2.0, check.getHeight() / 2.0);
+        g.drawImage(check, 0, 0, null);
+        g.dispose();
+        return rotated;
+    }
+
+    private static BufferedImage blur(BufferedImage check, double sigma) {
+        int radius = (int) Math.ceil(3 * sigma);
+        float[] weights = new float[2 * radius + 1];
+        float sum = 0;
+        for (int i = -radius; i <= radius; i++) {
+            weights[i + radius] = (float) Math.exp(-i * i / (2 * sigma * sigma));
+            sum += weights[i + radius];
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] /= sum;
+        }
+        BufferedImage horizontal = new ConvolveOp(new Kernel(weights.length, 1, weights), ConvolveOp.EDGE_NO_OP, null)
+                .filter(check, null);
+        return new ConvolveOp(new Kernel(1, weights.length, weights), ConvolveOp.EDGE_NO_OP, null)
+                .filter(horizontal, null);
+    }
+
+    private static void addNoise(BufferedImage check, double sigma, Random random) {
+        int[] pixels = ((DataBufferInt) check.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < pixels.length; i++) {
+            int delta = (int) Math.round(random.nextGaussian() * sigma);
+            int rgb = pixels[i];
+            pixels[i] = clamp((rgb >> 16 & 0xFF) + delta) << 16
+                    | clamp((rgb >> 8 & 0xFF) + delta) << 8
+                    | clamp((rgb & 0xFF) + delta);
+        }
+    }
+
+    private static int clamp(int level) {
+        return Math.max(0, Math.min(255, level));
+    }
+
+    private static BufferedImage jpeg(BufferedImage check, float quality) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+                writer.write(null, new IIOImage(check, null, null), param);
+            }
+            return ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
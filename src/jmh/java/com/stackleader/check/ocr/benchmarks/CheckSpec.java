@@ -0,0 +1,104 @@
+package com.stackleader.check.ocr.benchmarks;
+
+import java.util.Random;
+import static org.apache.commons.validator.routines.checkdigit.ABANumberCheckDigit.ABAN_CHECK_DIGIT;
+
+/**
+ * The fields a generated check carries on its MICR line, what recognition
+ * is expected to read back.
+ */
+final class CheckSpec {
+
+    /**
+     * Where the check number is printed.
+     */
+    enum Layout {
+        /**
+         * Personal checks: check number after the account in the on-us
+         * field.
+         */
+        PERSONAL,
+        /**
+         * Business checks: check number in the auxiliary on-us field, left
+         * of the routing number.
+         */
+        BUSINESS
+    }
+
+    private final String routingNumber;
+    private final String accountNumber;
+    private final String checkNumber;
+    /**
+     * Amount in cents, encoded after presentment; null for a blank check.
+     */
+    private final String amount;
+    private final Layout layout;
+
+    CheckSpec(String routingNumber, String accountNumber, String checkNumber, String amount, Layout layout) {
+        this.routingNumber = routingNumber;
+        this.accountNumber = accountNumber;
+        this.checkNumber = checkNumber;
+        this.amount = amount;
+        this.layout = layout;
+    }
+
+    /**
+     * @return a check with a valid routing number, amounts on about half of
+     * them
+     */
+    static CheckSpec random(Random random) {
+        String routing = digits(random, 8);
+        try {
+            routing += ABAN_CHECK_DIGIT.calculate(routing);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+        String amount = random.nextBoolean() ? String.format("%010d", 100 + random.nextInt(10_000_000)) : null;
+        Layout layout = random.nextInt(4) == 0 ? Layout.BUSINESS : Layout.PERSONAL;
+        return new CheckSpec(routing, digits(random, 6 + random.nextInt(7)),
+                Integer.toString(100 + random.nextInt(99_900)), amount, layout);
+    }
+
+    /**
+     * @return the MICR line as printed from left to right, in the symbols of
+     * {@link E13bFont}
+     */
+    String micrLine() {
+        StringBuilder line = new StringBuilder();
+        if (layout == Layout.BUSINESS) {
+            line.append('C').append(checkNumber).append("C ");
+        }
+        line.append('A').append(routingNumber).append("A ").append(accountNumber).append('C');
+        if (layout == Layout.PERSONAL) {
+            line.append(checkNumber);
+        }
+        if (amount != null) {
+            line.append("  B").append(amount).append('B');
+        }
+        return line.toString();
+    }
+
+    String getRoutingNumber() {
+        return routingNumber;
+    }
+
+    String getAccountNumber() {
+        return accountNumber;
+    }
+
+    String getCheckNumber() {
+        return checkNumber;
+    }
+
+    String getAmount() {
+        return amount;
+    }
+
+    private static String digits(Random random, int count) {
+        StringBuilder digits = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            digits.append((char) ('0' + random.nextInt(10)));
+        }
+        return digits.toString();
+    }
+}
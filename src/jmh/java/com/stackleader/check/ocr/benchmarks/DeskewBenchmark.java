@@ -0,0 +1,83 @@
+package com.stackleader.check.ocr.benchmarks;
+
+import com.recognition.software.jdeskew.ImageDeskew;
+import com.recognition.software.jdeskew.ImageUtil;
+import com.stackleader.check.ocr.preprocessing.DeskewStage;
+import com.stackleader.check.ocr.preprocessing.PipelineWorkspace;
+import com.stackleader.check.ocr.preprocessing.PixelBuffer;
+import com.stackleader.check.ocr.preprocessing.PreprocessingPipeline;
+import com.stackleader.check.ocr.preprocessing.ProjectionSkewEstimator;
+import com.stackleader.check.ocr.preprocessing.SauvolaStage;
+import com.stackleader.check.ocr.preprocessing.SkewEstimate;
+import de.vorb.tesseract.tools.preprocessing.binarization.IntegralSauvola;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Skew estimation and correction of a binarized check, the pipeline's
+ * projection search against the jdeskew Hough transform it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeskewBenchmark {
+
+    @Param({"0", "3.5"})
+    public double skew;
+
+    private final ProjectionSkewEstimator estimator = new ProjectionSkewEstimator();
+    private final PreprocessingPipeline deskew = new PreprocessingPipeline(new DeskewStage());
+    private final PipelineWorkspace workspace = new PipelineWorkspace();
+    private final PipelineWorkspace binarizationWorkspace = new PipelineWorkspace();
+    private PixelBuffer binary;
+    private BufferedImage binaryImage;
+
+    @Setup
+    public void setUp() {
+        BufferedImage check = SampleChecks.render(300, skew, 1);
+        binary = new PreprocessingPipeline(new SauvolaStage(new IntegralSauvola())).run(check, binarizationWorkspace);
+        binaryImage = new IntegralSauvola().binarize(check);
+    }
+
+    @Benchmark
+    public SkewEstimate estimateProjection() {
+        return estimator.estimate(binary);
+    }
+
+    /**
+     * Estimation and rotation into a workspace buffer.
+     */
+    @Benchmark
+    public PixelBuffer deskewStage() {
+        return deskew.run(binary, workspace);
+    }
+
+    @Benchmark
+    public double estimateJdeskew() {
+        return new ImageDeskew(binaryImage).getSkewAngle();
+    }
+
+    /**
+     * What preprocessing did before the deskew stage.
+     */
+    @Benchmark
+    public BufferedImage jdeskew() {
+        double angle = new ImageDeskew(binaryImage).getSkewAngle();
+        return Math.abs(angle) > 0.05 ? ImageUtil.rotate(binaryImage, -angle, binaryImage.getWidth() / 2,
+                binaryImage.getHeight() / 2) : binaryImage;
+    }
+}
@@ -0,0 +1,152 @@
+package com.stackleader.check.ocr.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How a generated check deviates from a clean flatbed scan. Instances are
+ * immutable, the {@code with} methods return modified copies.
+ */
+final class Distortion {
+
+    enum Background {
+        PLAIN,
+        /**
+         * Light falling off across the check, as in phone photos.
+         */
+        GRADIENT,
+        /**
+         * Fine wavy security print.
+         */
+        PATTERN
+    }
+
+    private final String name;
+    private final int dpi;
+    private final double maxSkew;
+    private final boolean upsideDown;
+    private final double blurRadius;
+    private final float jpegQuality;
+    private final double noise;
+    private final Background background;
+
+    private Distortion(String name, int dpi, double maxSkew, boolean upsideDown, double blurRadius,
+            float jpegQuality, double noise, Background background) {
+        this.name = name;
+        this.dpi = dpi;
+        this.maxSkew = maxSkew;
+        this.upsideDown = upsideDown;
+        this.blurRadius = blurRadius;
+        this.jpegQuality = jpegQuality;
+        this.noise = noise;
+        this.background = background;
+    }
+
+    /**
+     * A 300 dpi scan without distortions.
+     */
+    static Distortion clean(String name) {
+        return new Distortion(name, 300, 0, false, 0, 0, 0, Background.PLAIN);
+    }
+
+    /**
+     * @return one class per distortion, plus all of them mildly combined
+     */
+    static Map<String, Distortion> classes() {
+        Map<String, Distortion> classes = new LinkedHashMap<>();
+        for (Distortion distortion : new Distortion[]{
+            clean("clean"),
+            clean("skew").withMaxSkew(4),
+            clean("upside-down").withUpsideDown(true),
+            clean("blur").withBlurRadius(1.5),
+            clean("jpeg").withJpegQuality(0.25f),
+            clean("low-res").withDpi(150),
+            clean("noise").withNoise(30),
+            clean("pattern").withBackground(Background.PATTERN),
+            clean("phone").withDpi(200).withMaxSkew(2).withBlurRadius(0.8).withJpegQuality(0.6f)
+                    .withNoise(12).withBackground(Background.GRADIENT)}) {
+            classes.put(distortion.name, distortion);
+        }
+        return classes;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getDpi() {
+        return dpi;
+    }
+
+    /**
+     * Skew is drawn uniformly from {@code [-maxSkew, maxSkew]} degrees.
+     */
+    double getMaxSkew() {
+        return maxSkew;
+    }
+
+    boolean isUpsideDown() {
+        return upsideDown;
+    }
+
+    /**
+     * Standard deviation of the gaussian blur in pixels, 0 for none.
+     */
+    double getBlurRadius() {
+        return blurRadius;
+    }
+
+    /**
+     * Quality the image is JPEG compressed with, 0 for no compression.
+     */
+    float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    /**
+     * Standard deviation of the gaussian noise added to each pixel, in gray
+     * levels.
+     */
+    double getNoise() {
+        return noise;
+    }
+
+    Background getBackground() {
+        return background;
+    }
+
+    Distortion withDpi(int dpi) {
+        return new Distortion(name, dpi, maxSkew, upsideDown, blurRadius, jpegQuality, noise, background);
+    }
+
+    Distortion withMaxSkew(double maxSkew) {
+        return new Distortion(name, dpi, maxSkew, upsideDown, blurRadius, jpegQuality, noise, background);
+    }
+
+    Distortion withUpsideDown(boolean upsideDown) {
+        return new Distortion(name, dpi, maxSkew, upsideDown, blurRadius, jpegQuality, noise, background);
+    }
+
+    Distortion withBlurRadius(double blurRadius) {
+        return new Distortion(name, dpi, maxSkew, upsideDown, blurRadius, jpegQuality, noise, background);
+    }
+
+    Distortion withJpegQuality(float jpegQuality) {
+        return new Distortion(name, dpi, maxSkew, upsideDown, blurRadius, jpegQuality, noise, background);
+    }
+
+    Distortion withNoise(double noise) {
+        return new Distortion(name, dpi, maxSkew, upsideDown, blurRadius, jpegQuality, noise, background);
+    }
+
+    Distortion withBackground(Background background) {
+        return new Distortion(name, dpi, maxSkew, upsideDown, blurRadius, jpegQuality, noise, background);
+    }
+
+    @Override
+    public String toString() {
+        return name + "{dpi=" + dpi + ", maxSkew=" + maxSkew + ", upsideDown=" + upsideDown
+                + ", blurRadius=" + blurRadius + ", jpegQuality=" + jpegQuality + ", noise=" + noise
+                + ", background=" + background + '}';
+    }
+}
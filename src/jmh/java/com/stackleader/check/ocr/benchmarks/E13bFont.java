@@ -0,0 +1,206 @@
+package com.stackleader.check.ocr.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * E13B characters drawn from cells of the 0.013 inch grid the font is
+ * specified on: 9 cells high, at most 7 wide, 8 characters per inch. The
+ * shapes follow the font closely enough for recognition, they are not the
+ * certified outlines. The symbols are written as tesseract's e13b data reads
+ * them: A transit, B amount, C on-us, D dash.
+ */
+final class E13bFont {
+
+    /**
+     * Grid cell size in inches.
+     */
+    static final double UNIT = 0.013;
+    /**
+     * Distance between character origins in inches.
+     */
+    static final double PITCH = 0.125;
+
+    private static final Map<Character, String[]> GLYPHS = new HashMap<>();
+
+    static {
+        GLYPHS.put('0', new String[]{
+            "#######",
+            "#.....#",
+            "#.....#",
+            "#.....#",
+            "##...##",
+            "##...##",
+            "##...##",
+            "##...##",
+            "#######"});
+        GLYPHS.put('1', new String[]{
+            ".##....",
+            "..#....",
+            "..#....",
+            "..#....",
+            "..#....",
+            ".###...",
+            ".###...",
+            ".###...",
+            ".###..."});
+        GLYPHS.put('2', new String[]{
+            "#####..",
+            "....#..",
+            "....#..",
+            "....#..",
+            "#####..",
+            "##.....",
+            "##.....",
+            "##.....",
+            "#######"});
+        GLYPHS.put('3', new String[]{
+            "#####..",
+            "....#..",
+            "....#..",
+            ".####..",
+            "....###",
+            "....###",
+            "....###",
+            "....###",
+            "#######"});
+        GLYPHS.put('4', new String[]{
+            "##.....",
+            "##.....",
+            "##.....",
+            "##..#..",
+            "##..#..",
+            "#######",
+            "....##.",
+            "....##.",
+            "....##."});
+        GLYPHS.put('5', new String[]{
+            "#####..",
+            "#......",
+            "#......",
+            "#####..",
+            "....###",
+            "....###",
+            "....###",
+            "....###",
+            "######."});
+        GLYPHS.put('6', new String[]{
+            "##.....",
+            "#......",
+            "#......",
+            "#......",
+            "#######",
+            "##....#",
+            "##....#",
+            "##....#",
+            "#######"});
+        GLYPHS.put('7', new String[]{
+            "#######",
+            ".....#.",
+            ".....#.",
+            "....#..",
+            "....#..",
+            "...##..",
+            "...##..",
+            "...##..",
+            "...##.."});
+        GLYPHS.put('8', new String[]{
+            ".#####.",
+            ".#...#.",
+            ".#...#.",
+            ".#####.",
+            "##...##",
+            "##...##",
+            "##...##",
+            "##...##",
+            "#######"});
+        GLYPHS.put('9', new String[]{
+            "#######",
+            "#.....#",
+            "#.....#",
+            "#######",
+            ".....##",
+            ".....##",
+            ".....##",
+            ".....##",
+            ".....##"});
+        GLYPHS.put('A', new String[]{
+            "##..##.",
+            "##..##.",
+            "##.....",
+            "##.....",
+            "##.....",
+            "##.....",
+            "##.....",
+            "##..##.",
+            "##..##."});
+        GLYPHS.put('B', new String[]{
+            "##...##",
+            "##...##",
+            "##.#.##",
+            "##...##",
+            "##...##",
+            "##...##",
+            "##.#.##",
+            "##...##",
+            "##...##"});
+        GLYPHS.put('C', new String[]{
+            "##.####",
+            "##.####",
+            "##.....",
+            "##.....",
+            "##.##..",
+            "##.##..",
+            "##.##..",
+            "##.##..",
+            "##.##.."});
+        GLYPHS.put('D', new String[]{
+            ".......",
+            ".......",
+            ".......",
+            "##.##.#",
+            "##.##.#",
+            "##.##.#",
+            ".......",
+            ".......",
+            "......."});
+    }
+
+    private E13bFont() {
+    }
+
+    /**
+     * Draws {@code text} with the bottom of the characters on
+     * {@code baseline}; spaces advance by one pitch.
+     *
+     * @param dpi resolution of the target, in pixels per inch
+     */
+    static void draw(Graphics2D g, String text, double x, double baseline, double dpi) {
+        final double unit = UNIT * dpi;
+        final double pitch = PITCH * dpi;
+        final double top = baseline - 9 * unit;
+        for (int i = 0; i < text.length(); i++) {
+            final String[] glyph = GLYPHS.get(text.charAt(i));
+            if (glyph == null) {
+                continue;
+            }
+            final double left = x + i * pitch;
+            for (int row = 0; row < glyph.length; row++) {
+                for (int column = 0; column < glyph[row].length(); column++) {
+                    if (glyph[row].charAt(column) == '#') {
+                        g.fill(new Rectangle2D.Double(left + column * unit, top + row * unit, unit, unit));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return width of {@code text} in inches
+     */
+    static double width(String text) {
+        return text.length() * PITCH;
+    }
+}
@@ -0,0 +1,91 @@
+package com.stackleader.check.ocr.benchmarks;
+
+import com.stackleader.check.ocr.OcrEngine;
+import com.stackleader.check.ocr.OcrEnginePool;
+import com.stackleader.check.ocr.OcrMetrics;
+import com.stackleader.check.ocr.OcrProcessor;
+import com.stackleader.check.ocr.Recognition;
+import com.stackleader.check.ocr.preprocessing.PipelineWorkspacePool;
+import com.stackleader.check.ocr.preprocessing.ResolutionStage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.tess4j.ITessAPI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Full recognition of a decoded check on a single engine, from grayscale
+ * conversion to the accepted MICR line. Needs the tesseract library and
+ * traineddata; point {@code images} at a directory of scans to measure
+ * real checks instead of rendered ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RecognitionBenchmark {
+
+    @Param("/opt/micr-ocr-scanner-api/tessdata")
+    public String tessData;
+
+    @Param("e13b")
+    public String language;
+
+    @Param("")
+    public String images;
+
+    private OcrEnginePool ocrEnginePool;
+    private OcrProcessor ocrProcessor;
+    private List<BufferedImage> checks;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ocrEnginePool = new OcrEnginePool(1,
+                () -> new OcrEngine(tessData, language, 3, ITessAPI.TessPageSegMode.PSM_AUTO_OSD),
+                meterRegistry);
+        ocrProcessor = new OcrProcessor();
+        ReflectionTestUtils.setField(ocrProcessor, "ocrEnginePool", ocrEnginePool);
+        ReflectionTestUtils.setField(ocrProcessor, "ocrMetrics", new OcrMetrics(meterRegistry));
+        ReflectionTestUtils.setField(ocrProcessor, "workspacePool", new PipelineWorkspacePool(1));
+        ReflectionTestUtils.setField(ocrProcessor, "resolutionStage", new ResolutionStage(300, 6));
+        checks = SampleChecks.load(images);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ocrEnginePool.close();
+    }
+
+    /**
+     * Cycles through the checks; a check without an accepted line costs a
+     * flipped retry, which is measured like any other recognition.
+     */
+    @Benchmark
+    public Recognition recognize() {
+        BufferedImage check = checks.get(next++ % checks.size());
+        try {
+            return ocrProcessor.recognize(check);
+        } catch (NoSuchElementException ex) {
+            return null;
+        }
+    }
+}
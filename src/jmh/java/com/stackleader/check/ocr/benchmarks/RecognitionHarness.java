@@ -0,0 +1,195 @@
+package com.stackleader.check.ocr.benchmarks;
+
+import com.stackleader.check.ocr.OcrEngine;
+import com.stackleader.check.ocr.OcrEnginePool;
+import com.stackleader.check.ocr.OcrMetrics;
+import com.stackleader.check.ocr.OcrProcessor;
+import com.stackleader.check.ocr.Recognition;
+import com.stackleader.check.ocr.ToadLine;
+import com.stackleader.check.ocr.preprocessing.PipelineWorkspacePool;
+import com.stackleader.check.ocr.preprocessing.ResolutionStage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.tess4j.ITessAPI;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Recognizes generated checks of every {@link Distortion} class end to end
+ * and reports, per class, throughput, latency percentiles, how many checks
+ * yielded a line and how many fields matched what was printed. Unlike the
+ * JMH benchmarks it measures accuracy alongside speed, so a faster stage
+ * that costs reads shows up.
+ *
+ * Arguments, all optional: {@code --tessdata=<dir>}, {@code --language=e13b},
+ * {@code --count=<checks per class>}, {@code --threads=<engines>},
+ * {@code --classes=<comma separated names>}, {@code --seed=<long>}.
+ */
+public final class RecognitionHarness {
+
+    private RecognitionHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        String tessData = options.getOrDefault("tessdata", "/opt/micr-ocr-scanner-api/tessdata");
+        String language = options.getOrDefault("language", "e13b");
+        int count = Integer.parseInt(options.getOrDefault("count", "200"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        Map<String, Distortion> classes = Distortion.classes();
+        if (options.containsKey("classes")) {
+            classes.keySet().retainAll(Arrays.asList(options.get("classes").split(",")));
+        }
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OcrEnginePool ocrEnginePool = new OcrEnginePool(threads,
+                () -> new OcrEngine(tessData, language, 3, ITessAPI.TessPageSegMode.PSM_AUTO_OSD),
+                meterRegistry);
+        OcrProcessor ocrProcessor = new OcrProcessor();
+        ReflectionTestUtils.setField(ocrProcessor, "ocrEnginePool", ocrEnginePool);
+        ReflectionTestUtils.setField(ocrProcessor, "ocrMetrics", new OcrMetrics(meterRegistry));
+        ReflectionTestUtils.setField(ocrProcessor, "workspacePool", new PipelineWorkspacePool(threads));
+        ReflectionTestUtils.setField(ocrProcessor, "resolutionStage", new ResolutionStage(300, 6));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            System.out.printf("%-12s %8s %8s %8s %8s %7s %8s %8s %8s %8s%n", "class", "checks/s", "p50 ms",
+                    "p95 ms", "p99 ms", "read", "routing", "account", "check#", "amount");
+            // one warm-up pass so class loading and engine start-up don't count
+            run(ocrProcessor, executor, classes.values().iterator().next(), Math.min(count, 2 * threads), seed);
+            for (Distortion distortion : classes.values()) {
+                System.out.println(run(ocrProcessor, executor, distortion, count, seed));
+            }
+        } finally {
+            executor.shutdownNow();
+            ocrEnginePool.close();
+        }
+    }
+
+    private static Result run(OcrProcessor ocrProcessor, ExecutorService executor, Distortion distortion,
+            int count, long seed) throws Exception {
+        List<Future<Outcome>> outcomes = new ArrayList<>(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long checkSeed = seed * 1_000_003 + i;
+            outcomes.add(executor.submit(() -> recognize(ocrProcessor, distortion, new Random(checkSeed))));
+        }
+        Result result = new Result(distortion.getName(), count);
+        for (Future<Outcome> outcome : outcomes) {
+            result.add(outcome.get());
+        }
+        // generation overlaps recognition on the other threads, so this is
+        // a lower bound of what the engines sustain
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static Outcome recognize(OcrProcessor ocrProcessor, Distortion distortion, Random random) {
+        CheckSpec spec = CheckSpec.random(random);
+        BufferedImage check = CheckGenerator.render(spec, distortion, random);
+        long start = System.nanoTime();
+        ToadLine toadLine;
+        try {
+            Recognition recognition = ocrProcessor.recognize(check);
+            toadLine = new ToadLine(recognition.getLine().getText());
+        } catch (RuntimeException ex) {
+            toadLine = null;
+        }
+        return new Outcome(spec, toadLine, System.nanoTime() - start);
+    }
+
+    private static String stripLeadingZeros(String number) {
+        return number == null ? null : number.replaceFirst("^0+(?=.)", "");
+    }
+
+    private static final class Outcome {
+
+        private final CheckSpec spec;
+        private final ToadLine toadLine;
+        private final long nanos;
+
+        Outcome(CheckSpec spec, ToadLine toadLine, long nanos) {
+            this.spec = spec;
+            this.toadLine = toadLine;
+            this.nanos = nanos;
+        }
+    }
+
+    private static final class Result {
+
+        private final String name;
+        private final long[] latencies;
+        private int recognized;
+        private int read;
+        private int routing;
+        private int account;
+        private int checkNumber;
+        private int amount;
+        private int amounts;
+        private long elapsedNanos;
+
+        Result(String name, int count) {
+            this.name = name;
+            this.latencies = new long[count];
+        }
+
+        void add(Outcome outcome) {
+            latencies[recognized++] = outcome.nanos;
+            CheckSpec spec = outcome.spec;
+            if (spec.getAmount() != null) {
+                amounts++;
+            }
+            ToadLine toadLine = outcome.toadLine;
+            if (toadLine == null) {
+                return;
+            }
+            read++;
+            routing += spec.getRoutingNumber().equals(toadLine.getRoutingNumber()) ? 1 : 0;
+            account += spec.getAccountNumber().equals(toadLine.getAccountNumber()) ? 1 : 0;
+            checkNumber += Objects.equals(stripLeadingZeros(spec.getCheckNumber()),
+                    stripLeadingZeros(toadLine.getCheckNumber())) ? 1 : 0;
+            if (spec.getAmount() != null) {
+                String dollars = new BigDecimal(spec.getAmount()).movePointLeft(2).toPlainString();
+                amount += dollars.equals(toadLine.getAmount()) ? 1 : 0;
+            }
+        }
+
+        private double percentile(double p) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        private static String rate(int hits, int of) {
+            return of == 0 ? "-" : String.format("%.1f%%", 100.0 * hits / of);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-12s %8.1f %8.1f %8.1f %8.1f %7s %8s %8s %8s %8s", name,
+                    recognized / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1)),
+                    percentile(0.5), percentile(0.95), percentile(0.99), rate(read, recognized),
+                    rate(routing, recognized), rate(account, recognized), rate(checkNumber, recognized),
+                    rate(amount, amounts));
+        }
+    }
+}
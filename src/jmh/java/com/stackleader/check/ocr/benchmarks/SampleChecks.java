@@ -0,0 +1,61 @@
+package com.stackleader.check.ocr.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/**
+ * Check images for the benchmarks, either scans from a directory or
+ * rendered ones.
+ */
+final class SampleChecks {
+
+    private SampleChecks() {
+    }
+
+    /**
+     * Renders a check on unevenly lit paper, {@code 6 * dpi} pixels wide.
+     *
+     * @param skew clockwise rotation of the check, in degrees
+     */
+    static BufferedImage render(int dpi, double skew, long seed) {
+        Random random = new Random(seed);
+        return CheckGenerator.render(CheckSpec.random(random),
+                Distortion.clean("sample").withDpi(dpi).withBackground(Distortion.Background.GRADIENT).withNoise(6),
+                skew, random);
+    }
+
+    /**
+     * @return the images of {@code directory}, or checks rendered at
+     * common scan resolutions when it is empty
+     */
+    static List<BufferedImage> load(String directory) {
+        if (directory.isEmpty()) {
+            return List.of(render(200, 0, 1), render(300, 1.5, 2), render(300, -2, 3));
+        }
+        try (Stream<Path> files = Files.list(Path.of(directory))) {
+            return files.sorted().map(SampleChecks::read).collect(Collectors.toList());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static BufferedImage read(Path file) {
+        try {
+            BufferedImage image = ImageIO.read(file.toFile());
+            if (image == null) {
+                throw new IllegalArgumentException("Not an image: " + file);
+            }
+            return image;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.stackleader.check.ocr.benchmarks;
+
+import com.stackleader.check.ocr.ToadLine;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of recognized MICR lines, including lines the parser has to give
+ * up on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToadLineBenchmark {
+
+    @Param({
+        "A011000015A123456789C1234C",
+        "C0001234C A011000015A 123456789C",
+        "A011000016A123456789C",
+        "1Il 0O0 noise without symbols"
+    })
+    public String line;
+
+    @Benchmark
+    public ToadLine parse() {
+        return new ToadLine(line);
+    }
+
+    @Benchmark
+    public boolean validateRoutingNumber() {
+        return ToadLine.hasValidRoutingNumber(line);
+    }
+}
@@ -0,0 +1,96 @@
+package com.stackleader.check.ocr;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+
+/**
+ * The images of a batch upload, read one after the other from the request
+ * stream. The stream of an item is only valid until the next call of
+ * {@link #next()}.
+ */
+interface BatchItems {
+
+    /**
+     * Advances to the next image.
+     *
+     * @return false at the end of the batch
+     */
+    boolean next() throws IOException;
+
+    String getName();
+
+    InputStream openStream() throws IOException;
+
+    /**
+     * The file parts of a {@code multipart/form-data} upload; plain form
+     * fields are skipped.
+     */
+    static BatchItems of(FileItemIterator parts) {
+        return new BatchItems() {
+            private FileItemStream part;
+
+            @Override
+            public boolean next() throws IOException {
+                try {
+                    while (parts.hasNext()) {
+                        part = parts.next();
+                        if (!part.isFormField()) {
+                            return true;
+                        }
+                    }
+                    return false;
+                } catch (FileUploadException ex) {
+                    throw new IOException(ex);
+                }
+            }
+
+            @Override
+            public String getName() {
+                return part.getName() != null ? part.getName() : part.getFieldName();
+            }
+
+            @Override
+            public InputStream openStream() throws IOException {
+                return part.openStream();
+            }
+        };
+    }
+
+    /**
+     * The file entries of a ZIP archive; directories are skipped.
+     */
+    static BatchItems of(ZipInputStream zip) {
+        return new BatchItems() {
+            private ZipEntry entry;
+
+            @Override
+            public boolean next() throws IOException {
+                do {
+                    entry = zip.getNextEntry();
+                } while (entry != null && entry.isDirectory());
+                return entry != null;
+            }
+
+            @Override
+            public String getName() {
+                return entry.getName();
+            }
+
+            @Override
+            public InputStream openStream() {
+                // closing an entry's stream must not close the archive
+                return new FilterInputStream(zip) {
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+    }
+}
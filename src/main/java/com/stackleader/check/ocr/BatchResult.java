@@ -0,0 +1,38 @@
+package com.stackleader.check.ocr;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * One line of the {@code /processChecks} response, the MICR fields of a
+ * check, the reason it failed, or both when only some fields were read.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+
+    /**
+     * Position of the image in the batch, counting from 0; absent when the
+     * batch itself could not be read further.
+     */
+    private final Integer index;
+    private final String name;
+    private final ToadLine toadLine;
+    private final String error;
+
+    static BatchResult success(int index, String name, ToadLine toadLine) {
+        return new BatchResult(index, name, toadLine, null);
+    }
+
+    /**
+     * A line without a routing or account number, reported with the fields
+     * that could be read.
+     */
+    static BatchResult incomplete(int index, String name, ToadLine toadLine) {
+        return new BatchResult(index, name, toadLine, "Could not extract required fields");
+    }
+
+    static BatchResult failure(Integer index, String name, String error) {
+        return new BatchResult(index, name, null, error);
+    }
+}
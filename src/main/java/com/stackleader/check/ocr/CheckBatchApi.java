@@ -0,0 +1,211 @@
+package com.stackleader.check.ocr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Recognizes a bundle of checks in one request. The images of a
+ * {@code multipart/form-data} upload or a ZIP archive ({@code application/zip})
+ * are recognized in parallel, and a {@link BatchResult} is written as one
+ * line of JSON by the request thread once each check finishes, so results
+ * arrive out of order. A failing image is reported on its line and doesn't end the batch.
+ * Batch items share the {@link OcrExecutor} with single requests but wait for
+ * queue space instead of being rejected.
+ */
+@RestController
+public class CheckBatchApi {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CheckBatchApi.class);
+    private static final String NDJSON = "application/x-ndjson";
+    private static final MediaType ZIP = MediaType.valueOf("application/zip");
+
+    @Autowired
+    private CheckRecognizer checkRecognizer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OcrExecutor ocrExecutor;
+
+    @Autowired
+    private OcrMetrics ocrMetrics;
+
+    @Value("${ocr.upload.max-bytes:10485760}")
+    private long maxUploadBytes;
+
+    /**
+     * Images read ahead of the recognitions and results not yet written,
+     * bounds the memory one batch holds.
+     */
+    @Value("${ocr.batch.max-in-flight:0}")
+    private int maxInFlight;
+
+    /**
+     * Deadline of each item, counted from when it starts running since
+     * items wait for queue space by design.
+     */
+    @Value("${ocr.deadline.default:30s}")
+    private Duration itemDeadline = Duration.ofSeconds(30);
+
+    @PostMapping(value = "/processChecks", produces = NDJSON)
+    public void processChecks(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BatchItems items = openItems(request);
+        response.setContentType(NDJSON);
+        ResultLines lines = new ResultLines(response.getOutputStream(),
+                maxInFlight > 0 ? maxInFlight : 2 * Runtime.getRuntime().availableProcessors());
+        int index = 0;
+        try {
+            while (items.next()) {
+                int itemIndex = index++;
+                String name = items.getName();
+                lines.writeRecognized(lines.maxPending - 1);
+                byte[] imageBytes;
+                try (InputStream item = ImageUploads.limit(items.openStream(), maxUploadBytes)) {
+                    // the request stream is read sequentially, the encoded image
+                    // is kept so decoding runs in parallel with reading the next one
+                    imageBytes = item.readAllBytes();
+                } catch (IOException ex) {
+                    if (!ImageUploads.isUploadTooLarge(ex)) {
+                        throw ex;
+                    }
+                    ocrMetrics.failure(CheckOcrApi.failureReason(ex));
+                    lines.write(BatchResult.failure(itemIndex, name, ex.getMessage()));
+                    continue;
+                }
+                try {
+                    // batch items wait for room in the OCR queue rather than being shed
+                    ocrExecutor.enqueue(() -> lines.recognized(recognize(itemIndex, name, imageBytes)));
+                    lines.pending++;
+                } catch (InterruptedException | RejectedExecutionException ex) {
+                    lines.write(BatchResult.failure(itemIndex, name, "OCR executor is shutting down"));
+                    if (ex instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            LOG.error("Could not read batch", ex);
+            lines.writeRecognized(0);
+            lines.write(BatchResult.failure(null, null, "Could not read batch after " + index + " images: " + ex.getMessage()));
+            return;
+        }
+        lines.writeRecognized(0);
+    }
+
+    private BatchItems openItems(HttpServletRequest request) throws IOException {
+        try {
+            if (ServletFileUpload.isMultipartContent(request)) {
+                return BatchItems.of(new ServletFileUpload().getItemIterator(request));
+            }
+            if (request.getContentType() != null
+                    && ZIP.equalsTypeAndSubtype(MediaType.parseMediaType(request.getContentType()))) {
+                return BatchItems.of(new ZipInputStream(request.getInputStream()));
+            }
+        } catch (FileUploadException | IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                "Expected multipart/form-data or application/zip");
+    }
+
+    private BatchResult recognize(int index, String name, byte[] imageBytes) {
+        try {
+            // items are already on an OCR thread
+            ToadLine toadLine = checkRecognizer.recognize(imageBytes, Deadline.after(itemDeadline),
+                    CheckRecognizer.OcrThread.CURRENT);
+            if (!toadLine.isComplete()) {
+                ocrMetrics.failure(CheckOcrApi.MISSING_FIELDS);
+                return BatchResult.incomplete(index, name, toadLine);
+            }
+            return BatchResult.success(index, name, toadLine);
+        } catch (IllegalArgumentException | OcrTimeoutException ex) {
+            ocrMetrics.failure(CheckOcrApi.failureReason(ex));
+            return BatchResult.failure(index, name, ex.getMessage());
+        } catch (Exception ex) {
+            ocrMetrics.failure(CheckOcrApi.failureReason(ex));
+            LOG.error("Could not process batch item {} ({})", index, name, ex);
+            return BatchResult.failure(index, name, "Could not read image or extract required fields");
+        }
+    }
+
+    /**
+     * The response of one batch. Results are handed over by the OCR threads
+     * and written by the request thread, so a slow client never holds an
+     * OCR thread.
+     */
+    private final class ResultLines {
+
+        private final OutputStream out;
+        /**
+         * Items read but not yet written, which bounds the images and
+         * results one batch holds.
+         */
+        private final int maxPending;
+        private final BlockingQueue<BatchResult> recognized;
+        private int pending;
+
+        ResultLines(OutputStream out, int maxPending) {
+            this.out = out;
+            this.maxPending = maxPending;
+            this.recognized = new ArrayBlockingQueue<>(maxPending);
+        }
+
+        /**
+         * Called on an OCR thread, never blocks since no more results than
+         * pending items are handed over.
+         */
+        void recognized(BatchResult result) {
+            recognized.add(result);
+        }
+
+        /**
+         * Writes the results handed over so far, waiting for more while
+         * over {@code limit} items are pending.
+         */
+        void writeRecognized(int limit) {
+            while (pending > 0) {
+                BatchResult result = pending > limit
+                        ? Uninterruptibles.takeUninterruptibly(recognized) : recognized.poll();
+                if (result == null) {
+                    return;
+                }
+                pending--;
+                write(result);
+            }
+        }
+
+        void write(BatchResult result) {
+            try {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+                out.flush();
+            } catch (IOException ex) {
+                // the client went away, the remaining items still run to completion
+                LOG.warn("Could not write result of batch item {}: {}", result.getIndex(), ex.getMessage());
+            }
+        }
+    }
+}
@@ -1,22 +1,27 @@
 package com.stackleader.check.ocr;
 
-import com.google.common.primitives.Doubles;
-import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Base64;
-import java.util.Objects;
-import java.util.stream.Collectors;
-import javax.imageio.ImageIO;
+import java.time.Duration;
+import java.util.NoSuchElementException;
 import javax.servlet.http.HttpServletRequest;
-import net.sourceforge.tess4j.Word;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.servlet.ServletRequestContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  *
@@ -27,27 +32,203 @@ public class CheckOcrApi {
     
     private static final Logger LOG = LoggerFactory.getLogger(CheckOcrApi.class);
 
+    /**
+     * Multipart part holding the front of the check, the side with the MICR
+     * line.
+     */
+    private static final String FRONT_PART = "front";
+    /**
+     * Milliseconds the client is willing to wait for a result, capped at
+     * the maximum deadline.
+     */
+    static final String TIMEOUT_HEADER = "X-Request-Timeout";
+    private static final String UPLOAD_TOO_LARGE = "upload_too_large";
+    static final String MISSING_FIELDS = "missing_fields";
+    static final String DEADLINE_EXCEEDED = "deadline_exceeded";
+
+    @Autowired
+    private CheckRecognizer checkRecognizer;
+
     @Autowired
-    private OcrProcessor ocrProcessor;
+    private OcrExecutor ocrExecutor;
+
+    @Autowired
+    private OcrMetrics ocrMetrics;
+
+    @Value("${ocr.upload.max-bytes:10485760}")
+    private long maxUploadBytes;
 
+    /**
+     * Deadline of requests without a timeout header.
+     */
+    @Value("${ocr.deadline.default:30s}")
+    private Duration defaultDeadline = Duration.ofSeconds(30);
+
+    @Value("${ocr.deadline.max:60s}")
+    private Duration maxDeadline = Duration.ofSeconds(60);
+
+    /**
+     * Accepts the check image as raw bytes ({@code application/octet-stream}
+     * or {@code image/*}), as the {@code front} part of a
+     * {@code multipart/form-data} upload, or as a base64 data URL with any
+     * other content type. A {@code back} part is accepted but not read.
+     *
+     * A line without a readable routing or account number is answered with
+     * 422, carrying the fields that could be read and why the others
+     * couldn't. A request not answered within its deadline, from the
+     * {@code X-Request-Timeout} header or the default, is answered with 504.
+     */
     @PostMapping(value = "/processCheck", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ToadLine processCheckImage(HttpServletRequest request) {
-        try(BufferedReader reader = request.getReader()) {
-            String contentLength = request.getHeader("Content-Length");
-            if (Objects.nonNull(Doubles.tryParse(contentLength))) {
-                LOG.info(contentLength);
-            }
-            final String encodedImageText = reader.lines().collect(Collectors.joining(System.lineSeparator()));
-            byte[] imageBytes = Base64.getDecoder().decode(encodedImageText.split(",")[1]);
-            try (InputStream is = new ByteArrayInputStream(imageBytes)) {
-                BufferedImage checkImage = ImageIO.read(is);
-                Word extractedToadLine = ocrProcessor.extractToadLine(checkImage);
-                return new ToadLine(extractedToadLine.getText());
-            }
+    public ResponseEntity<ToadLine> processCheckImage(HttpServletRequest request) {
+        long contentLength = request.getContentLengthLong();
+        LOG.debug("Content-Length: {}", contentLength);
+        ocrMetrics.uploadReceived(contentLength);
+        if (contentLength > maxUploadBytes) {
+            ocrMetrics.failure(UPLOAD_TOO_LARGE);
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Request body exceeds " + maxUploadBytes + " bytes");
+        }
+        Deadline deadline = Deadline.after(requestTimeout(request));
+        ToadLine toadLine;
+        try {
+            toadLine = recognize(request, deadline);
+        } catch (OcrRejectedException ex) {
+            throw ex;
+        } catch (OcrTimeoutException ex) {
+            ocrMetrics.failure(DEADLINE_EXCEEDED);
+            throw ex;
         } catch (Exception ex) {
+            ocrMetrics.failure(failureReason(ex));
+            if (ImageUploads.isUploadTooLarge(ex)) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Request body exceeds " + maxUploadBytes + " bytes");
+            }
             LOG.error(ex.getMessage(), ex);
+            if (ex instanceof IllegalArgumentException) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+            }
             throw new IllegalStateException("Could not read image or extract required fields");
         }
+        if (!toadLine.isComplete()) {
+            ocrMetrics.failure(MISSING_FIELDS);
+            LOG.debug("MICR line without required fields: {}", toadLine.getErrors());
+            return ResponseEntity.unprocessableEntity().body(toadLine);
+        }
+        return ResponseEntity.ok(toadLine);
+    }
 
+    private Duration requestTimeout(HttpServletRequest request) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header == null) {
+            return defaultDeadline;
+        }
+        long millis;
+        try {
+            millis = Long.parseLong(header.trim());
+        } catch (NumberFormatException ex) {
+            millis = 0;
+        }
+        if (millis <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    TIMEOUT_HEADER + " must be a positive number of milliseconds");
+        }
+        Duration timeout = Duration.ofMillis(millis);
+        return timeout.compareTo(maxDeadline) > 0 ? maxDeadline : timeout;
+    }
+
+    /**
+     * The upload is read here, so an OCR thread only decodes and recognizes
+     * bytes that have arrived, and a remembered image is answered without
+     * waiting for one. The deadline is enforced by the recognition rather
+     * than by waiting for it here, so an expired request stops using its
+     * OCR thread and engine instead of leaving them behind.
+     */
+    private ToadLine recognize(HttpServletRequest request, Deadline deadline) throws Exception {
+        byte[] image;
+        long start = System.nanoTime();
+        try (InputStream body = openBody(request)) {
+            image = ImageUploads.readAll(openImage(request, body), deadline);
+        }
+        // includes removing the base64 or multipart framing, done while streaming
+        ocrMetrics.recordStage("read", System.nanoTime() - start);
+        return checkRecognizer.recognize(image, deadline, work -> ocrExecutor.execute(work, deadline));
+    }
+
+    /**
+     * @return the reason {@code ex} is counted under in {@code ocr.failures}
+     */
+    static String failureReason(Exception ex) {
+        if (ImageUploads.isUploadTooLarge(ex)) {
+            return UPLOAD_TOO_LARGE;
+        }
+        if (ex instanceof IllegalArgumentException || ex instanceof FileUploadException) {
+            return "unreadable_upload";
+        }
+        if (ex instanceof NoSuchElementException) {
+            return "no_micr_line";
+        }
+        if (ex instanceof OcrTimeoutException) {
+            return DEADLINE_EXCEEDED;
+        }
+        return "error";
+    }
+
+    @ExceptionHandler(OcrRejectedException.class)
+    public ResponseEntity<String> rejected(OcrRejectedException ex) {
+        LOG.warn(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(OcrTimeoutException.class)
+    public ResponseEntity<String> timedOut(OcrTimeoutException ex) {
+        LOG.warn(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(ex.getMessage());
+    }
+
+    private InputStream openBody(HttpServletRequest request) throws IOException {
+        // a chunked body has no length up front, it is cut off while reading instead
+        return ImageUploads.limit(request.getInputStream(), maxUploadBytes);
+    }
+
+    /**
+     * @return the encoded image, read from {@code body} as it is consumed
+     */
+    private static InputStream openImage(HttpServletRequest request, InputStream body)
+            throws IOException, FileUploadException {
+        if (ServletFileUpload.isMultipartContent(request)) {
+            return openFrontPart(request, body);
+        }
+        String contentType = request.getContentType();
+        if (contentType != null) {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if (MediaType.APPLICATION_OCTET_STREAM.equalsTypeAndSubtype(mediaType)
+                    || "image".equals(mediaType.getType())) {
+                return body;
+            }
+        }
+        return DataUrls.openPayload(body);
+    }
+
+    /**
+     * Parts are streamed in request order, the front part is read as it
+     * arrives and parts before it are skipped.
+     */
+    private static InputStream openFrontPart(HttpServletRequest request, InputStream body)
+            throws IOException, FileUploadException {
+        FileItemIterator parts = new ServletFileUpload().getItemIterator(new ServletRequestContext(request) {
+            @Override
+            public InputStream getInputStream() {
+                return body;
+            }
+        });
+        while (parts.hasNext()) {
+            FileItemStream part = parts.next();
+            if (FRONT_PART.equals(part.getFieldName())) {
+                return part.openStream();
+            }
+        }
+        throw new IllegalArgumentException("Multipart upload has no " + FRONT_PART + " part");
     }
 }
@@ -0,0 +1,136 @@
+package com.stackleader.check.ocr;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns an uploaded image into its {@link ToadLine}, answering from the
+ * {@link OcrResultCache} and then the {@link OcrResultStore} before running
+ * OCR, whichever of the two are configured.
+ */
+@Component
+public class CheckRecognizer {
+
+    private static final String DECODE = "decode";
+    private static final String PARSE = "parse";
+
+    @Autowired
+    private OcrProcessor ocrProcessor;
+
+    @Autowired
+    private OcrMetrics ocrMetrics;
+
+    @Autowired
+    private ImageDecoder imageDecoder;
+
+    @Autowired(required = false)
+    private OcrResultCache resultCache;
+
+    @Autowired(required = false)
+    private OcrResultStore resultStore;
+
+    /**
+     * Where decoding and OCR run, an {@link OcrExecutor} for callers that
+     * aren't on an OCR thread yet and {@link #CURRENT} for those that are.
+     */
+    @FunctionalInterface
+    public interface OcrThread {
+
+        /**
+         * Runs the work on the calling thread, itself an OCR thread.
+         */
+        OcrThread CURRENT = new OcrThread() {
+            @Override
+            public Recognition run(Callable<Recognition> work) throws Exception {
+                return work.call();
+            }
+
+            @Override
+            public boolean isCurrent() {
+                return true;
+            }
+        };
+
+        Recognition run(Callable<Recognition> work) throws Exception;
+
+        /**
+         * @return whether work runs on the calling thread, which must then
+         * not wait for OCR of other callers that may be queued behind it
+         */
+        default boolean isCurrent() {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether results are looked up by the hash of the image
+     */
+    private boolean remembersResults() {
+        return resultCache != null || resultStore != null;
+    }
+
+    /**
+     * @param image the encoded image as uploaded, after transfer encodings
+     * like base64 are removed
+     */
+    public ToadLine recognize(byte[] image, OcrThread ocrThread) throws Exception {
+        return recognize(image, Deadline.none(), ocrThread);
+    }
+
+    /**
+     * @param image the encoded image as uploaded, after transfer encodings
+     * like base64 are removed
+     * @param deadline checked before decoding and throughout OCR, results
+     * found in the cache or the store are returned regardless
+     * @param ocrThread given the work only on a miss, the image is hashed
+     * and looked up on the calling thread
+     * @throws OcrTimeoutException if the deadline expired
+     */
+    public ToadLine recognize(byte[] image, Deadline deadline, OcrThread ocrThread) throws Exception {
+        if (!remembersResults()) {
+            return toadLine(ocrThread.run(() -> decodeAndRecognize(image, deadline)));
+        }
+        // a collision would hand out another check's account, so the hash is cryptographic
+        HashCode contentHash = Hashing.sha256().hashBytes(image);
+        Callable<ToadLine> lookup = () -> {
+            Optional<ToadLine> stored = resultStore == null ? Optional.empty() : resultStore.find(contentHash);
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+            Recognition recognition = ocrThread.run(() -> decodeAndRecognize(image, deadline));
+            ToadLine toadLine = toadLine(recognition);
+            if (resultStore != null) {
+                resultStore.record(contentHash, toadLine, recognition);
+            }
+            return toadLine;
+        };
+        return resultCache == null ? lookup.call() : resultCache.get(contentHash, deadline, !ocrThread.isCurrent(), lookup);
+    }
+
+    private Recognition decodeAndRecognize(byte[] image, Deadline deadline) throws IOException {
+        deadline.check();
+        long start = System.nanoTime();
+        BufferedImage checkImage = imageDecoder.read(new ByteArrayInputStream(image));
+        long decodeNanos = System.nanoTime() - start;
+        ocrMetrics.recordStage(DECODE, decodeNanos);
+        ocrMetrics.imageDecoded(checkImage);
+        Recognition recognition = ocrProcessor.recognize(checkImage, deadline);
+        recognition.getStageNanos().put(DECODE, decodeNanos);
+        return recognition;
+    }
+
+    private ToadLine toadLine(Recognition recognition) {
+        long start = System.nanoTime();
+        ToadLine toadLine = new ToadLine(recognition.getLine().getText());
+        ocrMetrics.recordStage(PARSE, System.nanoTime() - start);
+        toadLine.getErrors().forEach(ocrMetrics::missingField);
+        return toadLine;
+    }
+}
@@ -0,0 +1,47 @@
+package com.stackleader.check.ocr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Streams the payload of a base64 data URL,
+ * {@code data:[<mediatype>][;parameters];base64,<data>}, without holding
+ * the encoded text in memory.
+ */
+final class DataUrls {
+
+    private static final int MAX_HEADER_LENGTH = 256;
+
+    private DataUrls() {
+    }
+
+    /**
+     * Consumes the header of a data URL from {@code body}.
+     *
+     * @return a stream of the decoded payload; the MIME decoder skips line
+     * breaks within the payload
+     * @throws IllegalArgumentException if {@code body} doesn't start with a
+     * base64 data URL header
+     */
+    static InputStream openPayload(InputStream body) throws IOException {
+        final byte[] header = new byte[MAX_HEADER_LENGTH];
+        int length = 0;
+        int b = body.read();
+        while (Character.isWhitespace(b)) {
+            b = body.read();
+        }
+        for (; b != ','; b = body.read()) {
+            if (b < 0 || length == MAX_HEADER_LENGTH) {
+                throw new IllegalArgumentException("Request body is not a data URL");
+            }
+            header[length++] = (byte) b;
+        }
+        final String text = new String(header, 0, length, StandardCharsets.US_ASCII);
+        if (!text.regionMatches(true, 0, "data:", 0, 5) || !text.toLowerCase().endsWith(";base64")) {
+            throw new IllegalArgumentException("Request body is not a base64 data URL");
+        }
+        return Base64.getMimeDecoder().wrap(body);
+    }
+}
@@ -0,0 +1,89 @@
+package com.stackleader.check.ocr;
+
+import java.time.Duration;
+
+/**
+ * The time by which a request must be answered. It is checked between the
+ * stages of a recognition and, while tesseract recognizes, by the cancel
+ * callback of the engine's monitor, so a recognition stops within a word of
+ * running out of time and its engine goes back to the pool.
+ *
+ * A deadline can also be cancelled, to stop work whose result is no longer
+ * needed like the losing lane of an {@link OrientationRace}. Cancelling a
+ * deadline cancels the deadlines derived from it with {@link #child()}.
+ */
+public final class Deadline {
+
+    private final Duration timeout;
+    private final long expiresAt;
+    private final Deadline parent;
+    private volatile boolean cancelled;
+
+    private Deadline(Duration timeout, long expiresAt, Deadline parent) {
+        this.timeout = timeout;
+        this.expiresAt = expiresAt;
+        this.parent = parent;
+    }
+
+    /**
+     * @return a deadline {@code timeout} from now
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(timeout, System.nanoTime() + timeout.toNanos(), null);
+    }
+
+    /**
+     * @return a deadline that never expires, though it can be cancelled
+     */
+    public static Deadline none() {
+        return new Deadline(null, 0, null);
+    }
+
+    /**
+     * @return a deadline expiring with this one, that can be cancelled on
+     * its own
+     */
+    public Deadline child() {
+        return new Deadline(timeout, expiresAt, this);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || parent != null && parent.isCancelled();
+    }
+
+    public boolean isExpired() {
+        return timeout != null && System.nanoTime() - expiresAt >= 0;
+    }
+
+    /**
+     * @return whether work under this deadline should stop, because it is
+     * cancelled or expired
+     */
+    public boolean shouldStop() {
+        return isExpired() || isCancelled();
+    }
+
+    /**
+     * @return nanoseconds left, {@link Long#MAX_VALUE} without a deadline
+     */
+    public long remainingNanos() {
+        return timeout == null ? Long.MAX_VALUE : Math.max(0, expiresAt - System.nanoTime());
+    }
+
+    /**
+     * @throws OcrTimeoutException if the deadline has passed
+     */
+    public void check() {
+        if (isExpired()) {
+            throw timeout();
+        }
+    }
+
+    public OcrTimeoutException timeout() {
+        return new OcrTimeoutException("Recognition exceeded its deadline of " + timeout.toMillis() + " ms");
+    }
+}
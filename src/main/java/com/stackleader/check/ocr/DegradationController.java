@@ -0,0 +1,132 @@
+package com.stackleader.check.ocr;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Picks the {@link QualityLevel} of recognitions from the load on the
+ * {@link OcrExecutor}. Every interval the 95th percentiles of the queue
+ * wait and of the latency, queue wait included, of the tasks that finished
+ * in it are compared to their targets. Above either target quality drops
+ * by one level. Only after {@code recoverIntervals} consecutive intervals
+ * below half of both targets does it rise by one again, so a level isn't
+ * left while the load that caused it lasts. An interval without tasks
+ * counts as below target.
+ *
+ * The active level is published as {@code ocr.degradation.level}, its
+ * ordinal: 0 is full quality.
+ */
+public class DegradationController implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DegradationController.class);
+    /**
+     * Tasks of an interval that are kept, the latest ones.
+     */
+    private static final int WINDOW = 1024;
+    private static final double RECOVER_RATIO = 0.5;
+    private static final QualityLevel[] LEVELS = QualityLevel.values();
+
+    private final long latencyTargetNanos;
+    private final long queueWaitTargetNanos;
+    private final int recoverIntervals;
+    private final long[] latencies = new long[WINDOW];
+    private final long[] queueWaits = new long[WINDOW];
+    private final ScheduledExecutorService scheduler;
+    private int recorded;
+    private int calmIntervals;
+    private volatile QualityLevel level = QualityLevel.FULL;
+
+    public DegradationController(Duration latencyTarget, Duration queueWaitTarget, Duration interval,
+            int recoverIntervals, MeterRegistry meterRegistry) {
+        if (recoverIntervals < 1) {
+            throw new IllegalArgumentException("recoverIntervals must be positive: " + recoverIntervals);
+        }
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.queueWaitTargetNanos = queueWaitTarget.toNanos();
+        this.recoverIntervals = recoverIntervals;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ocr-degradation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::evaluate, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+        Gauge.builder("ocr.degradation.level", this, controller -> controller.getLevel().ordinal())
+                .description("Quality level of recognitions, 0 is full quality, higher levels are cheaper")
+                .register(meterRegistry);
+    }
+
+    public QualityLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Records a finished OCR task.
+     *
+     * @param latencyNanos from queueing the task to its end
+     */
+    public synchronized void record(long queueWaitNanos, long latencyNanos) {
+        int slot = recorded++ % WINDOW;
+        queueWaits[slot] = queueWaitNanos;
+        latencies[slot] = latencyNanos;
+    }
+
+    /**
+     * Ends an interval, moving the level by at most one.
+     */
+    void evaluate() {
+        long p95QueueWait;
+        long p95Latency;
+        synchronized (this) {
+            int count = Math.min(recorded, WINDOW);
+            p95QueueWait = p95(queueWaits, count);
+            p95Latency = p95(latencies, count);
+            recorded = 0;
+        }
+        QualityLevel current = level;
+        if (p95Latency > latencyTargetNanos || p95QueueWait > queueWaitTargetNanos) {
+            calmIntervals = 0;
+            if (current.ordinal() < LEVELS.length - 1) {
+                change(current, LEVELS[current.ordinal() + 1], p95Latency, p95QueueWait);
+            }
+        } else if (p95Latency < latencyTargetNanos * RECOVER_RATIO
+                && p95QueueWait < queueWaitTargetNanos * RECOVER_RATIO) {
+            if (++calmIntervals >= recoverIntervals && current.ordinal() > 0) {
+                calmIntervals = 0;
+                change(current, LEVELS[current.ordinal() - 1], p95Latency, p95QueueWait);
+            }
+        } else {
+            calmIntervals = 0;
+        }
+    }
+
+    private void change(QualityLevel from, QualityLevel to, long p95Latency, long p95QueueWait) {
+        level = to;
+        LOG.info("Recognition quality {} -> {}, p95 latency {} ms, p95 queue wait {} ms", from, to,
+                TimeUnit.NANOSECONDS.toMillis(p95Latency), TimeUnit.NANOSECONDS.toMillis(p95QueueWait));
+    }
+
+    /**
+     * @return the 95th percentile of the first {@code count} values, 0 for
+     * none
+     */
+    private static long p95(long[] values, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(0.95 * count) - 1];
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
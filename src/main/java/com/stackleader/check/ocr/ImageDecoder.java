@@ -0,0 +1,122 @@
+package com.stackleader.check.ocr;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+/**
+ * Decodes uploaded images at the resolution recognition needs rather than
+ * the one they were taken at. The header is read first, then the reader
+ * keeps only every n-th pixel of every n-th row, the largest n that still
+ * leaves {@code targetWidth} pixels, and optionally only the bottom
+ * {@code bandHeight} of the frame. A 48 MP phone photo thus never exists as
+ * a full resolution raster.
+ *
+ * Readers are reused, one per format and thread.
+ */
+public class ImageDecoder {
+
+    private final int targetWidth;
+    private final double bandHeight;
+    private final List<ImageReaderSpi> providers = new ArrayList<>();
+    private final ThreadLocal<Map<ImageReaderSpi, ImageReader>> readers = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * @param targetWidth width below which images aren't subsampled, 0 to
+     * decode every pixel
+     * @param bandHeight fraction of the frame to decode, measured from its
+     * bottom edge; below 1 the MICR line of an upside-down check is cut off
+     */
+    public ImageDecoder(int targetWidth, double bandHeight) {
+        if (targetWidth < 0) {
+            throw new IllegalArgumentException("targetWidth must not be negative: " + targetWidth);
+        }
+        if (!(bandHeight > 0 && bandHeight <= 1)) {
+            throw new IllegalArgumentException("bandHeight must be in (0, 1]: " + bandHeight);
+        }
+        this.targetWidth = targetWidth;
+        this.bandHeight = bandHeight;
+        Iterator<ImageReaderSpi> registered = IIORegistry.getDefaultInstance()
+                .getServiceProviders(ImageReaderSpi.class, true);
+        registered.forEachRemaining(providers::add);
+    }
+
+    /**
+     * Decodes an image from a stream of its encoded bytes. The bytes are
+     * cached in memory as the reader seeks, rather than in ImageIO's default
+     * temp file cache, and are never copied into an array first.
+     *
+     * @throws IllegalArgumentException if no reader understands the format
+     */
+    public BufferedImage read(InputStream imageBytes) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(imageBytes)) {
+            ImageReader reader = readerFor(input);
+            try {
+                reader.setInput(input, true, true);
+                return reader.read(0, readParam(reader, reader.getWidth(0), reader.getHeight(0)));
+            } finally {
+                // drops the input, the reader is kept for the next image of its format
+                reader.reset();
+            }
+        }
+    }
+
+    ImageReadParam readParam(ImageReader reader, int width, int height) {
+        ImageReadParam param = reader.getDefaultReadParam();
+        int subsampling = targetWidth > 0 ? Math.max(1, width / targetWidth) : 1;
+        if (subsampling > 1) {
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        }
+        if (bandHeight < 1) {
+            int band = (int) Math.ceil(height * bandHeight);
+            param.setSourceRegion(new Rectangle(0, height - band, width, band));
+        }
+        return param;
+    }
+
+    private ImageReader readerFor(ImageInputStream input) {
+        for (ImageReaderSpi provider : providers) {
+            if (canDecode(provider, input)) {
+                return readers.get().computeIfAbsent(provider, ImageDecoder::createReader);
+            }
+        }
+        throw new IllegalArgumentException("Unsupported image format");
+    }
+
+    /**
+     * Not every provider restores the position it read the header from, so
+     * as in ImageIO the stream is reset after each one looked.
+     */
+    private static boolean canDecode(ImageReaderSpi provider, ImageInputStream input) {
+        try {
+            input.mark();
+            try {
+                return provider.canDecodeInput(input);
+            } finally {
+                input.reset();
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static ImageReader createReader(ImageReaderSpi provider) {
+        try {
+            return provider.createReaderInstance();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not create " + provider.getDescription(null), ex);
+        }
+    }
+}
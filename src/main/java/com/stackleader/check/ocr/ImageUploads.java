@@ -0,0 +1,68 @@
+package com.stackleader.check.ocr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.fileupload.util.LimitedInputStream;
+
+/**
+ * Limits on reading uploaded images from request streams; they are decoded
+ * by {@link ImageDecoder}.
+ */
+final class ImageUploads {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private ImageUploads() {
+    }
+
+    /**
+     * Fails reading with an {@link UploadTooLargeException} once more than
+     * {@code maxBytes} have been read.
+     */
+    static InputStream limit(InputStream body, long maxBytes) {
+        return new LimitedInputStream(body, maxBytes) {
+            @Override
+            protected void raiseError(long max, long count) throws IOException {
+                throw new UploadTooLargeException(max);
+            }
+        };
+    }
+
+    /**
+     * Reads the rest of {@code image}, checking {@code deadline} before each
+     * chunk. A client that stops sending is cut off by the connector's read
+     * timeout, {@code server.tomcat.connection-timeout}.
+     *
+     * @throws OcrTimeoutException if the deadline expired while reading
+     */
+    static byte[] readAll(InputStream image, Deadline deadline) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[CHUNK_BYTES];
+        deadline.check();
+        for (int read = image.read(chunk); read >= 0; read = image.read(chunk)) {
+            bytes.write(chunk, 0, read);
+            deadline.check();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Image readers may wrap the failure of the underlying stream.
+     */
+    static boolean isUploadTooLarge(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UploadTooLargeException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static final class UploadTooLargeException extends IOException {
+
+        UploadTooLargeException(long maxBytes) {
+            super("Request body exceeds " + maxBytes + " bytes");
+        }
+    }
+}
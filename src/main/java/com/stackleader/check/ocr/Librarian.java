@@ -11,15 +11,23 @@ import java.net.JarURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
@@ -27,6 +35,7 @@ import java.util.regex.Pattern;
 import net.sourceforge.tess4j.util.LoadLibs;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.function.IOConsumer;
 import org.jboss.vfs.VFS;
 import static org.jboss.vfs.VFSUtils.VFS_PROTOCOL;
 import org.jboss.vfs.VirtualFile;
@@ -42,6 +51,15 @@ import org.springframework.stereotype.Component;
 public class Librarian {
 
     public static final String LIB_TEMP_DIR = new File(System.getProperty("java.io.tmpdir"), "micro").getPath();
+    /**
+     * System property, or environment variable {@code OCR_NATIVE_DIR}, naming
+     * the directory native libraries are extracted to instead of
+     * {@link #LIB_TEMP_DIR}. Containers on a node can share it, read-only
+     * once it is extracted.
+     */
+    public static final String LIB_DIR_PROPERTY = "ocr.native.dir";
+    private static final String LIB_DIR_ENV = "OCR_NATIVE_DIR";
+    private static final String JNA_LIBRARY_PATH = "jna.library.path";
 
     public static final String DETECTED_NAME = "os.detected.name";
     public static final String DETECTED_ARCH = "os.detected.arch";
@@ -67,6 +85,8 @@ public class Librarian {
 
     private static final Logger LOG = LoggerFactory.getLogger(Librarian.class);
 
+    private static volatile CompletableFuture<File> extraction;
+
     public static void detect(Properties props, List<String> classifierWithLikes) {
         LOG.info("------------------------------------------------------------------------");
         LOG.info("Detecting the operating system and CPU architecture");
@@ -154,13 +174,85 @@ public class Librarian {
         return System.setProperty(name, value);
     }
 
+    /**
+     * Starts {@link #extractTessResources(String)} on a daemon thread, so the
+     * native libraries are extracted while the application context starts.
+     * The extracted directory is added to {@code jna.library.path} once done.
+     * The tess4j and lept4j jars only bundle libraries for Windows, elsewhere
+     * nothing is extracted and the system's libraries are loaded.
+     *
+     * @return the extracted directory, null if there are no bundled libraries
+     * for {@code resourceName}
+     */
+    public static CompletableFuture<File> extractInBackground(String resourceName) {
+        if (!hasBundledLibraries(resourceName)) {
+            LOG.info("No bundled native libraries for {}, using the system's", resourceName);
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<File> started = CompletableFuture.supplyAsync(() -> {
+            File targetPath = extractTessResources(resourceName);
+            if (targetPath.isDirectory()) {
+                String userCustomizedPath = System.getProperty(JNA_LIBRARY_PATH);
+                System.setProperty(JNA_LIBRARY_PATH, userCustomizedPath == null || userCustomizedPath.isEmpty()
+                        ? targetPath.getPath()
+                        : userCustomizedPath + File.pathSeparator + targetPath.getPath());
+            }
+            return targetPath;
+        }, task -> {
+            Thread thread = new Thread(task, "librarian");
+            thread.setDaemon(true);
+            thread.start();
+        });
+        extraction = started;
+        return started;
+    }
+
+    /**
+     * Waits for the extraction started by {@link #extractInBackground(String)},
+     * if any. Must be called before tesseract is first loaded.
+     */
+    public static void awaitExtraction() {
+        CompletableFuture<File> started = extraction;
+        if (started != null) {
+            long start = System.nanoTime();
+            started.join();
+            LOG.debug("Waited {} ms for native libraries", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * @return the directory named by {@link #LIB_DIR_PROPERTY}, or
+     * {@link #LIB_TEMP_DIR}
+     */
+    public static File getLibraryDir() {
+        String dir = getSystemProperty(LIB_DIR_PROPERTY, System.getenv(LIB_DIR_ENV));
+        return new File(dir == null || dir.isEmpty() ? LIB_TEMP_DIR : dir);
+    }
+
+    /**
+     * @param resourceName platform directory, like {@code win32-x86-64}
+     * @return whether a jar on the classpath bundles native libraries for it
+     */
+    static boolean hasBundledLibraries(String resourceName) {
+        try {
+            return LoadLibs.class.getClassLoader().getResources(resourceName + "/").hasMoreElements();
+        } catch (IOException e) {
+            LOG.warn(e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Extracts the libraries tess4j and lept4j bundle for a platform, found
+     * in a directory named after it at the root of their jars.
+     */
     public static synchronized File extractTessResources(String resourceName) {
         File targetPath = null;
 
         try {
-            targetPath = new File(LIB_TEMP_DIR, resourceName);
+            targetPath = new File(getLibraryDir(), resourceName);
 
-            Enumeration<URL> resources = LoadLibs.class.getClassLoader().getResources("lib/" + resourceName);
+            Enumeration<URL> resources = LoadLibs.class.getClassLoader().getResources(resourceName + "/");
             while (resources.hasMoreElements()) {
                 URL resourceUrl = resources.nextElement();
                 copyResources(resourceUrl, targetPath);
@@ -216,7 +308,15 @@ public class Librarian {
 
     /**
      * Copies resources from the jar file of the current thread and extract it
-     * to the destination path.
+     * to the destination path. The entries extracted are recorded in a
+     * manifest next to {@code destPath}, one line per file with the CRC-32
+     * and size the jar lists for it. A file whose line is in the manifest and
+     * whose own size and CRC-32 match the entry is left alone, so an intact
+     * extraction is reused without inflating the jar entries, and a directory
+     * that is not writable can be shared as long as it is current. A file
+     * damaged after extraction is extracted again. Files and the manifest are
+     * written to a temporary file and moved in place, so a process sharing
+     * the directory never loads a partially written library.
      *
      * @param jarConnection
      * @param destPath destination file or directory
@@ -228,6 +328,10 @@ public class Librarian {
                 jarConnectionEntryName += "/";
             }
 
+            File manifestFile = getManifestFile(destPath);
+            Set<String> extracted = readManifest(manifestFile);
+            List<String> manifest = new ArrayList<>();
+            int copied = 0;
             /**
              * Iterate all entries in the jar file.
              */
@@ -238,27 +342,63 @@ public class Librarian {
                 /**
                  * Extract files only if they match the path.
                  */
-                if (jarEntryName.startsWith(jarConnectionEntryName)) {
+                if (jarEntryName.startsWith(jarConnectionEntryName) && !jarEntry.isDirectory()) {
                     String filename = jarEntryName.substring(jarConnectionEntryName.length());
                     File targetFile = new File(destPath, filename);
-
-                    if (jarEntry.isDirectory()) {
-                        targetFile.mkdirs();
-                    } else {
-                        if (!targetFile.exists() || targetFile.length() != jarEntry.getSize()) {
-                            try (InputStream is = jarFile.getInputStream(jarEntry);
-                                    OutputStream out = FileUtils.openOutputStream(targetFile)) {
-                                IOUtils.copy(is, out);
-                            }
+                    String line = String.format(Locale.US, "%08x %d %s", jarEntry.getCrc(), jarEntry.getSize(), filename);
+                    manifest.add(line);
+                    if (!extracted.contains(line) || !isIntact(targetFile, jarEntry)) {
+                        try (InputStream is = jarFile.getInputStream(jarEntry)) {
+                            replace(targetFile, out -> IOUtils.copy(is, out));
                         }
+                        copied++;
                     }
                 }
             }
+            if (copied > 0 || !extracted.equals(new HashSet<>(manifest))) {
+                replace(manifestFile, out -> IOUtils.writeLines(manifest, "\n", out, StandardCharsets.UTF_8));
+                LOG.info("Extracted {} of {} files to {}", copied, manifest.size(), destPath);
+            } else {
+                LOG.debug("Reusing {} files extracted to {}", manifest.size(), destPath);
+            }
         } catch (IOException e) {
             LOG.warn(e.getMessage(), e);
         }
     }
 
+    private static boolean isIntact(File file, JarEntry jarEntry) throws IOException {
+        return file.isFile() && file.length() == jarEntry.getSize()
+                && FileUtils.checksumCRC32(file) == jarEntry.getCrc();
+    }
+
+    static File getManifestFile(File destPath) {
+        return new File(destPath.getParentFile(), destPath.getName() + ".manifest");
+    }
+
+    private static Set<String> readManifest(File manifestFile) throws IOException {
+        if (!manifestFile.isFile()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes {@code target} by way of a temporary file in its directory.
+     */
+    private static void replace(File target, IOConsumer<OutputStream> content) throws IOException {
+        File directory = target.getParentFile();
+        FileUtils.forceMkdir(directory);
+        Path temp = Files.createTempFile(directory.toPath(), target.getName(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                content.accept(out);
+            }
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
     static void copyFromWarToFolder(VirtualFile virtualFileOrFolder, File targetFolder) throws IOException {
         if (virtualFileOrFolder.isDirectory() && !virtualFileOrFolder.getName().contains(".")) {
             if (targetFolder.getName().equalsIgnoreCase(virtualFileOrFolder.getName())) {
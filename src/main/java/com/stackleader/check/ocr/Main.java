@@ -1,17 +1,27 @@
 package com.stackleader.check.ocr;
 
 import static com.stackleader.check.ocr.Librarian.detect;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackleader.check.ocr.preprocessing.PipelineWorkspacePool;
+import com.stackleader.check.ocr.preprocessing.ResolutionStage;
+import com.sun.jna.Platform;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import de.vorb.tesseract.tools.preprocessing.binarization.BinarizationKernels;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Properties;
 import net.sourceforge.tess4j.ITessAPI;
-import net.sourceforge.tess4j.Tesseract;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
-import org.springframework.web.multipart.commons.CommonsMultipartResolver;
 
 @SpringBootApplication
 public class Main {
@@ -21,26 +31,151 @@ public class Main {
     public static void main(String[] args) {
         final Properties properties = new Properties();
         detect(properties, Collections.<String>emptyList());
+        // bundled libraries, Windows only, are extracted while the context starts, the engine pool waits for them
+        Librarian.extractInBackground(Platform.RESOURCE_PREFIX);
+        LOG.info("Binarization kernels: {}", BinarizationKernels.getInstance().getName());
         SpringApplication.run(Main.class, args);
         LOG.debug("Spring Started");
     }
 
-    @Bean(name = "multipartResolver")
-    public CommonsMultipartResolver multipartResolver() {
-        CommonsMultipartResolver multipartResolver = new CommonsMultipartResolver();
-        multipartResolver.setMaxUploadSize(100000);
-        return multipartResolver;
+    /**
+     * One engine per OCR thread, and with {@code ocr.orientation.speculative}
+     * one more for each race that may run at once, so the second lane of a
+     * race doesn't take an engine an OCR thread is waiting for.
+     */
+    @Bean(name = "ocrEnginePool", destroyMethod = "close")
+    public OcrEnginePool ocrEnginePool(@Value("${tessData.dir}") String tessData,
+            @Value("${ocr.pool.size:0}") int poolSize,
+            @Value("${ocr.orientation.speculative:false}") boolean speculative,
+            @Value("${ocr.orientation.max-extra-engines:2}") int maxExtraEngines,
+            MeterRegistry meterRegistry) {
+        LOG.debug("tessData.dir={}", tessData);
+        Librarian.awaitExtraction();
+        return new OcrEnginePool(poolSize(poolSize) + (speculative ? maxExtraEngines : 0),
+                () -> new OcrEngine(tessData, "e13b", 3, ITessAPI.TessPageSegMode.PSM_AUTO_OSD),
+                meterRegistry);
     }
 
-    @Bean(name = "tesseract")
-    public Tesseract tesseract(@Value("${tessData.dir}") String tessData) throws Exception {
-        LOG.debug("tessData.dir={}", tessData);
-        Tesseract tesseract = new Tesseract();
-        tesseract.setDatapath(tessData);
-        tesseract.setLanguage("e13b");
-        tesseract.setOcrEngineMode(3);
-        tesseract.setPageSegMode(ITessAPI.TessPageSegMode.PSM_AUTO_OSD);
-        return tesseract;
+    @Bean
+    public OcrMetrics ocrMetrics(MeterRegistry meterRegistry) {
+        return new OcrMetrics(meterRegistry);
+    }
+
+    /**
+     * Only created when {@code ocr.orientation.speculative} is set, without it
+     * the flipped frame is recognized after the upright one fails.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ocr.orientation.speculative", havingValue = "true")
+    public OrientationRace orientationRace(OcrEnginePool ocrEnginePool,
+            @Value("${ocr.orientation.max-extra-engines:2}") int maxExtraEngines) {
+        return new OrientationRace(ocrEnginePool, maxExtraEngines);
+    }
+
+    @Bean
+    public ImageDecoder imageDecoder(@Value("${ocr.decode.target-width:2400}") int targetWidth,
+            @Value("${ocr.decode.band-height:1.0}") double bandHeight) {
+        return new ImageDecoder(targetWidth, bandHeight);
+    }
+
+    /**
+     * Only created when {@code ocr.normalize.target-dpi} is above 0. It is
+     * off by default since the resolution is estimated from the frame width
+     * rather than measured on the check.
+     */
+    @Bean
+    @ConditionalOnExpression("${ocr.normalize.target-dpi:0} > 0")
+    public ResolutionStage resolutionStage(@Value("${ocr.normalize.target-dpi:0}") int targetDpi,
+            @Value("${ocr.normalize.check-width:8.5}") double checkWidthInches) {
+        return new ResolutionStage(targetDpi, checkWidthInches);
+    }
+
+    /**
+     * One workspace per engine, a request holds its workspace while it waits
+     * for an engine.
+     */
+    @Bean
+    public PipelineWorkspacePool pipelineWorkspacePool(@Value("${ocr.pool.size:0}") int poolSize) {
+        return new PipelineWorkspacePool(poolSize(poolSize));
+    }
+
+    /**
+     * Runs all recognitions, one thread per engine.
+     */
+    @Bean(destroyMethod = "close")
+    public OcrExecutor ocrExecutor(@Value("${ocr.pool.size:0}") int poolSize,
+            @Value("${ocr.executor.queue-depth:0}") int queueDepth,
+            @Value("${ocr.executor.max-queue-wait:5s}") Duration maxQueueWait,
+            MeterRegistry meterRegistry,
+            ObjectProvider<DegradationController> degradationController) {
+        int threads = poolSize(poolSize);
+        return new OcrExecutor(threads, queueDepth > 0 ? queueDepth : 2 * threads, maxQueueWait, meterRegistry,
+                degradationController.getIfAvailable());
+    }
+
+    /**
+     * Only created when {@code ocr.degradation.enabled} is {@code true}, it
+     * is off by default and every check is then recognized at full quality.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ocr.degradation.enabled", havingValue = "true")
+    public DegradationController degradationController(
+            @Value("${ocr.degradation.latency-target:2s}") Duration latencyTarget,
+            @Value("${ocr.degradation.queue-wait-target:500ms}") Duration queueWaitTarget,
+            @Value("${ocr.degradation.interval:5s}") Duration interval,
+            @Value("${ocr.degradation.recover-intervals:6}") int recoverIntervals,
+            MeterRegistry meterRegistry) {
+        return new DegradationController(latencyTarget, queueWaitTarget, interval, recoverIntervals, meterRegistry);
+    }
+
+    /**
+     * Answers resubmitted images without recognizing them again, disabled
+     * by setting {@code ocr.cache.enabled=false}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ocr.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public OcrResultCache ocrResultCache(@Value("${ocr.cache.max-entries:10000}") long maxEntries,
+            @Value("${ocr.cache.ttl:10m}") Duration timeToLive,
+            MeterRegistry meterRegistry) {
+        return new OcrResultCache(maxEntries, timeToLive, meterRegistry);
+    }
+
+    /**
+     * Only created when {@code ocr.persistence.enabled} is set. The pool is
+     * built here instead of by Spring Boot so that deployments without a
+     * database don't need a datasource.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ocr.persistence.enabled", havingValue = "true")
+    public OcrResultStore ocrResultStore(@Value("${ocr.persistence.url}") String url,
+            @Value("${ocr.persistence.username:}") String username,
+            @Value("${ocr.persistence.password:}") String password,
+            @Value("${ocr.persistence.pool-size:4}") int poolSize,
+            @Value("${ocr.persistence.batch-size:100}") int batchSize,
+            @Value("${ocr.persistence.flush-interval:1s}") Duration flushInterval,
+            @Value("${ocr.persistence.queue-capacity:10000}") int queueCapacity,
+            @Value("${ocr.persistence.connection-timeout:1s}") Duration connectionTimeout,
+            @Value("${ocr.persistence.query-timeout:1s}") Duration queryTimeout,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("ocr-results");
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        // lookups run on the request path, an unreachable database must not hold requests for long
+        config.setConnectionTimeout(connectionTimeout.toMillis());
+        // start without the database, the store retries creating its table
+        config.setInitializationFailTimeout(-1);
+        // lets the driver send a batch as multi-row inserts
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        return new OcrResultStore(new HikariDataSource(config), batchSize, flushInterval, queueCapacity,
+                queryTimeout, objectMapper, meterRegistry);
+    }
+
+    private static int poolSize(int configured) {
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
     }
 
 }
@@ -0,0 +1,163 @@
+package com.stackleader.check.ocr;
+
+import com.stackleader.check.ocr.preprocessing.PixelBuffer;
+import com.sun.jna.Pointer;
+import java.awt.Rectangle;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import net.sourceforge.lept4j.Pix;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.ITessAPI.ETEXT_DESC;
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.ITessAPI.TessCancelFunc;
+import net.sourceforge.tess4j.ITessAPI.TessPageIterator;
+import net.sourceforge.tess4j.ITessAPI.TessResultIterator;
+import net.sourceforge.tess4j.TessAPI1;
+import net.sourceforge.tess4j.Word;
+
+/**
+ * A long-lived, pre-initialized Tesseract handle. Unlike
+ * {@link net.sourceforge.tess4j.Tesseract}, which creates, initializes and
+ * disposes a native handle on every call, an engine loads its traineddata
+ * once and is reused until {@link #close()}.
+ *
+ * Engines are not thread safe; they are handed out one caller at a time by
+ * {@link OcrEnginePool}.
+ */
+public class OcrEngine implements AutoCloseable {
+
+    private final TessBaseAPI handle;
+    /**
+     * Native copy of the current frame, reused across calls.
+     */
+    private final PixFrame pixFrame = new PixFrame();
+    private int pageSegMode;
+    private String whitelist = "";
+    private volatile Deadline deadline = Deadline.none();
+    /**
+     * Asked by tesseract after each word whether to give up, held here so
+     * the callback isn't collected while native code refers to it.
+     */
+    private final TessCancelFunc cancelFunc = (cancelThis, words) -> deadline.shouldStop();
+    private final ETEXT_DESC monitor;
+
+    /**
+     * @param pageSegMode initial mode, each recognition sets the mode of its
+     * {@link RecognitionTier}
+     */
+    public OcrEngine(String datapath, String language, int ocrEngineMode, int pageSegMode) {
+        handle = TessAPI1.TessBaseAPICreate();
+        if (TessAPI1.TessBaseAPIInit2(handle, datapath, language, ocrEngineMode) != 0) {
+            TessAPI1.TessBaseAPIDelete(handle);
+            throw new IllegalStateException("Could not initialize tesseract with language " + language + " from " + datapath);
+        }
+        TessAPI1.TessBaseAPISetPageSegMode(handle, pageSegMode);
+        this.pageSegMode = pageSegMode;
+        monitor = TessAPI1.TessMonitorCreate();
+        // the monitor is only handled through the C API, tess4j's mapping of its fields is outdated
+        monitor.setAutoSynch(false);
+        TessAPI1.TessMonitorSetCancelFunc(monitor, cancelFunc);
+    }
+
+    public List<Word> getWords(PixelBuffer frame, RecognitionTier tier, int pageIteratorLevel) {
+        return getWords(frame, tier, pageIteratorLevel, Deadline.none());
+    }
+
+    public List<Word> getWords(PixelBuffer frame, RecognitionTier tier, int pageIteratorLevel, Deadline deadline) {
+        return getWords(frame, tier, pageIteratorLevel, deadline, () -> {
+        });
+    }
+
+    /**
+     * @param tier page segmentation mode and whitelist to recognize with
+     * @param deadline recognition stops once it expires or is cancelled
+     * @param imageCopied run once the engine holds its own copy of the frame,
+     * the frame may be reused from then on
+     * @return the words found, none when the recognition was cancelled
+     * @throws OcrTimeoutException if the deadline expired
+     */
+    public List<Word> getWords(PixelBuffer frame, RecognitionTier tier, int pageIteratorLevel, Deadline deadline,
+            Runnable imageCopied) {
+        configure(tier);
+        Pix pix;
+        try {
+            pix = pixFrame.wrap(frame);
+        } finally {
+            imageCopied.run();
+        }
+        deadline.check();
+        TessAPI1.TessBaseAPISetImage2(handle, pix);
+        List<Word> words;
+        this.deadline = deadline;
+        try {
+            words = recognize(pageIteratorLevel);
+        } finally {
+            this.deadline = Deadline.none();
+            TessAPI1.TessBaseAPIClear(handle);
+        }
+        // what a stopped recognition found is incomplete
+        deadline.check();
+        return deadline.isCancelled() ? new ArrayList<>() : words;
+    }
+
+    /**
+     * Settings persist across recognitions, only changes are passed on.
+     */
+    private void configure(RecognitionTier tier) {
+        if (tier.getPageSegMode() != pageSegMode) {
+            TessAPI1.TessBaseAPISetPageSegMode(handle, tier.getPageSegMode());
+            pageSegMode = tier.getPageSegMode();
+        }
+        if (!tier.getWhitelist().equals(whitelist)) {
+            TessAPI1.TessBaseAPISetVariable(handle, "tessedit_char_whitelist", tier.getWhitelist());
+            whitelist = tier.getWhitelist();
+        }
+    }
+
+    private List<Word> recognize(int pageIteratorLevel) {
+        List<Word> words = new ArrayList<>();
+        if (TessAPI1.TessBaseAPIRecognize(handle, monitor) != 0) {
+            return words;
+        }
+        TessResultIterator ri = TessAPI1.TessBaseAPIGetIterator(handle);
+        if (ri == null) {
+            return words;
+        }
+        try {
+            TessPageIterator pi = TessAPI1.TessResultIteratorGetPageIterator(ri);
+            TessAPI1.TessPageIteratorBegin(pi);
+            IntBuffer left = IntBuffer.allocate(1);
+            IntBuffer top = IntBuffer.allocate(1);
+            IntBuffer right = IntBuffer.allocate(1);
+            IntBuffer bottom = IntBuffer.allocate(1);
+            do {
+                Pointer ptr = TessAPI1.TessResultIteratorGetUTF8Text(ri, pageIteratorLevel);
+                if (ptr == null) {
+                    continue;
+                }
+                String text = ptr.getString(0);
+                TessAPI1.TessDeleteText(ptr);
+                float confidence = TessAPI1.TessResultIteratorConfidence(ri, pageIteratorLevel);
+                left.clear();
+                top.clear();
+                right.clear();
+                bottom.clear();
+                TessAPI1.TessPageIteratorBoundingBox(pi, pageIteratorLevel, left, top, right, bottom);
+                Rectangle boundingBox = new Rectangle(left.get(0), top.get(0), right.get(0) - left.get(0), bottom.get(0) - top.get(0));
+                words.add(new Word(text, confidence, boundingBox));
+            } while (TessAPI1.TessPageIteratorNext(pi, pageIteratorLevel) == ITessAPI.TRUE);
+        } finally {
+            TessAPI1.TessResultIteratorDelete(ri);
+        }
+        return words;
+    }
+
+    @Override
+    public void close() {
+        TessAPI1.TessBaseAPIEnd(handle);
+        TessAPI1.TessBaseAPIDelete(handle);
+        TessAPI1.TessMonitorDelete(monitor);
+        pixFrame.close();
+    }
+}
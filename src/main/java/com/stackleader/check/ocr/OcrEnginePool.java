@@ -0,0 +1,115 @@
+package com.stackleader.check.ocr;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of pre-initialized {@link OcrEngine}s. Every engine is created
+ * up front so the traineddata is loaded once per engine instead of once per
+ * request, and at most {@link #getSize()} recognitions run concurrently.
+ */
+public class OcrEnginePool implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OcrEnginePool.class);
+
+    private final List<OcrEngine> engines;
+    private final BlockingQueue<OcrEngine> idle;
+    private final Timer borrowWait;
+
+    public OcrEnginePool(int size, Supplier<OcrEngine> engineFactory, MeterRegistry meterRegistry) {
+        if (size < 1) {
+            throw new IllegalArgumentException("pool size must be positive: " + size);
+        }
+        engines = new ArrayList<>(size);
+        idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            OcrEngine engine = engineFactory.get();
+            engines.add(engine);
+            idle.add(engine);
+        }
+        LOG.info("Initialized {} tesseract engines", size);
+
+        borrowWait = Timer.builder("ocr.pool.borrow.wait")
+                .description("Time spent waiting for an idle tesseract engine")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("ocr.pool.size", engines, List::size)
+                .register(meterRegistry);
+        Gauge.builder("ocr.pool.active", this, OcrEnginePool::getActive)
+                .register(meterRegistry);
+        Gauge.builder("ocr.pool.utilization", this, OcrEnginePool::getUtilization)
+                .description("Fraction of engines currently borrowed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Borrows an engine, blocking until one is idle, and returns it to the
+     * pool once {@code work} completes.
+     */
+    public <T> T execute(Function<OcrEngine, T> work) {
+        return execute(work, Deadline.none());
+    }
+
+    /**
+     * Like {@link #execute(Function)}, waiting for an engine no longer than
+     * {@code deadline} allows.
+     *
+     * @throws OcrTimeoutException if no engine became idle in time
+     */
+    public <T> T execute(Function<OcrEngine, T> work, Deadline deadline) {
+        OcrEngine engine = borrow(deadline);
+        try {
+            return work.apply(engine);
+        } finally {
+            release(engine);
+        }
+    }
+
+    OcrEngine borrow(Deadline deadline) {
+        long start = System.nanoTime();
+        try {
+            OcrEngine engine = idle.poll(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            if (engine == null) {
+                throw deadline.timeout();
+            }
+            return engine;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a tesseract engine", ex);
+        } finally {
+            borrowWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void release(OcrEngine engine) {
+        idle.offer(engine);
+    }
+
+    public int getSize() {
+        return engines.size();
+    }
+
+    public int getActive() {
+        return engines.size() - idle.size();
+    }
+
+    public double getUtilization() {
+        return (double) getActive() / engines.size();
+    }
+
+    @Override
+    public void close() {
+        engines.forEach(OcrEngine::close);
+        idle.clear();
+    }
+}
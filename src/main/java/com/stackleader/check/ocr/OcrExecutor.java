@@ -0,0 +1,231 @@
+package com.stackleader.check.ocr;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads OCR work runs on, one per engine, with a bounded queue in
+ * front. Requests are admitted only while the queue has room and only run
+ * if they start within the maximum queue wait, otherwise they fail with an
+ * {@link OcrRejectedException} rather than adding to the latency of
+ * everything behind them. A caller is answered as soon as its wait is over
+ * and its task leaves the queue.
+ *
+ * Batch work waits for room instead of being shed, and may hold at most
+ * half of the queue, so a batch never blocks requests from being admitted.
+ */
+public class OcrExecutor implements AutoCloseable {
+
+    /**
+     * Weight of the latest task in the running mean of task durations.
+     */
+    private static final double DURATION_SMOOTHING = 0.1;
+
+    private final int threads;
+    private final BlockingQueue<Runnable> queue;
+    /**
+     * Queue slots batch work may hold, taken by {@link #enqueue(Runnable)}
+     * and given back once the work leaves the queue.
+     */
+    private final Semaphore batchShare;
+    private final ThreadPoolExecutor executor;
+    private final long maxQueueWaitNanos;
+    private final Timer queueWait;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedQueueTimeout;
+    private final DegradationController degradationController;
+    private volatile double meanTaskNanos = TimeUnit.SECONDS.toNanos(1);
+
+    public OcrExecutor(int threads, int queueDepth, Duration maxQueueWait, MeterRegistry meterRegistry) {
+        this(threads, queueDepth, maxQueueWait, meterRegistry, null);
+    }
+
+    /**
+     * @param degradationController told the queue wait and latency of every
+     * task that ran, may be null
+     */
+    public OcrExecutor(int threads, int queueDepth, Duration maxQueueWait, MeterRegistry meterRegistry,
+            DegradationController degradationController) {
+        if (threads < 1 || queueDepth < 1) {
+            throw new IllegalArgumentException("threads and queue depth must be positive: " + threads + ", " + queueDepth);
+        }
+        this.threads = threads;
+        this.queue = new ArrayBlockingQueue<>(queueDepth);
+        this.batchShare = new Semaphore(Math.max(1, queueDepth / 2));
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.degradationController = degradationController;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "ocr-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // enqueue() puts tasks straight into the queue, which needs live workers
+        executor.prestartAllCoreThreads();
+
+        queueWait = Timer.builder("ocr.executor.queue.wait")
+                .description("Time OCR requests spent queued before running")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        rejectedQueueFull = Counter.builder("ocr.executor.rejected")
+                .description("OCR requests shed instead of queued")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        rejectedQueueTimeout = Counter.builder("ocr.executor.rejected")
+                .description("OCR requests shed instead of queued")
+                .tag("reason", "queue_timeout")
+                .register(meterRegistry);
+        Gauge.builder("ocr.executor.queue.depth", queue, BlockingQueue::size)
+                .description("OCR requests waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("ocr.executor.queue.capacity", this, OcrExecutor::getQueueCapacity)
+                .register(meterRegistry);
+        Gauge.builder("ocr.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code work} on an OCR thread and waits for its result.
+     *
+     * @throws OcrRejectedException if the queue is full, or if the work
+     * waited longer than the maximum queue wait to start
+     */
+    public <T> T execute(Callable<T> work) throws Exception {
+        return execute(work, Deadline.none());
+    }
+
+    /**
+     * Like {@link #execute(Callable)}, failing the work instead of running
+     * it if {@code deadline} expires while it is queued. Once started the
+     * work is expected to observe the deadline itself.
+     *
+     * @throws OcrTimeoutException if the deadline expired before the work
+     * started
+     */
+    public <T> T execute(Callable<T> work, Deadline deadline) throws Exception {
+        Admitted<T> task = new Admitted<>(work, true, deadline);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            rejectedQueueFull.increment();
+            throw new OcrRejectedException("OCR queue is full", getRetryAfterSeconds());
+        }
+        try {
+            // the caller is answered once the wait is over, not once a thread gets to the task
+            long wait = Math.min(maxQueueWaitNanos, deadline.remainingNanos());
+            if (!task.started.await(wait, TimeUnit.NANOSECONDS) && task.cancel(false)) {
+                executor.remove(task);
+                if (deadline.isExpired()) {
+                    throw deadline.timeout();
+                }
+                rejectedQueueTimeout.increment();
+                throw new OcrRejectedException("Waited too long for an OCR thread", getRetryAfterSeconds());
+            }
+            return task.get();
+        } catch (InterruptedException ex) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+            throw (Error) ex.getCause();
+        }
+    }
+
+    /**
+     * Queues batch {@code work} without a deadline, blocking while batch
+     * work holds its share of the queue, half of it and at least one slot,
+     * or while the queue is full.
+     */
+    public void enqueue(Runnable work) throws InterruptedException {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("OCR executor is shut down");
+        }
+        batchShare.acquire();
+        try {
+            queue.put(new Admitted<>(Executors.callable(work), false, Deadline.none()));
+        } catch (InterruptedException ex) {
+            batchShare.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return seconds for the threads to work off the current queue at the
+     * recent mean task duration, at least 1
+     */
+    public long getRetryAfterSeconds() {
+        double seconds = (queue.size() + 1) * meanTaskNanos / threads / TimeUnit.SECONDS.toNanos(1);
+        return Math.max(1, (long) Math.ceil(seconds));
+    }
+
+    public int getQueueCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private final class Admitted<T> extends FutureTask<T> {
+
+        private final long enqueued = System.nanoTime();
+        private final boolean expires;
+        private final Deadline deadline;
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        Admitted(Callable<T> work, boolean expires, Deadline deadline) {
+            super(work);
+            this.expires = expires;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            if (!expires) {
+                // batch work, which has left the queue
+                batchShare.release();
+            }
+            if (isCancelled()) {
+                // its caller stopped waiting before the task got a thread
+                return;
+            }
+            long start = System.nanoTime();
+            queueWait.record(start - enqueued, TimeUnit.NANOSECONDS);
+            if (expires && start - enqueued > maxQueueWaitNanos) {
+                rejectedQueueTimeout.increment();
+                setException(new OcrRejectedException("Waited too long for an OCR thread", getRetryAfterSeconds()));
+                return;
+            }
+            if (deadline.isExpired()) {
+                setException(deadline.timeout());
+                return;
+            }
+            super.run();
+            long end = System.nanoTime();
+            meanTaskNanos += DURATION_SMOOTHING * ((end - start) - meanTaskNanos);
+            if (degradationController != null) {
+                degradationController.record(start - enqueued, end - enqueued);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.stackleader.check.ocr;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the recognition of a check: a timer per stage
+ * ({@code ocr.stage}), the size of uploads and decoded images, flipped
+ * retries, the recognition tier that resolved each check and failures by
+ * reason. Timers publish histograms, so percentiles
+ * can be computed across instances.
+ */
+public class OcrMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> failures = new ConcurrentHashMap<>();
+    private final Map<String, Counter> missingFields = new ConcurrentHashMap<>();
+    private final Map<String, Counter> resolutions = new ConcurrentHashMap<>();
+    private final DistributionSummary uploadBytes;
+    private final DistributionSummary imageWidth;
+    private final DistributionSummary imageHeight;
+    private final Counter flippedRetries;
+
+    public OcrMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.uploadBytes = DistributionSummary.builder("ocr.upload.size")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.imageWidth = DistributionSummary.builder("ocr.image.width")
+                .baseUnit("pixels")
+                .register(meterRegistry);
+        this.imageHeight = DistributionSummary.builder("ocr.image.height")
+                .baseUnit("pixels")
+                .register(meterRegistry);
+        this.flippedRetries = Counter.builder("ocr.retries")
+                .description("Recognitions repeated on the flipped frame")
+                .tag("kind", "flipped")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts timing the stages of one recognition.
+     */
+    public StageClock startClock() {
+        return new StageClock();
+    }
+
+    public void recordStage(String stage, long nanos) {
+        stageTimers.computeIfAbsent(stage, name -> Timer.builder("ocr.stage")
+                .description("Time spent per stage of recognizing a check")
+                .tag("stage", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param contentLength length of the request body, negative when unknown
+     */
+    public void uploadReceived(long contentLength) {
+        if (contentLength >= 0) {
+            uploadBytes.record(contentLength);
+        }
+    }
+
+    public void imageDecoded(BufferedImage image) {
+        imageWidth.record(image.getWidth());
+        imageHeight.record(image.getHeight());
+    }
+
+    public void flippedRetry() {
+        flippedRetries.increment();
+    }
+
+    /**
+     * Counts a check by the {@link RecognitionTier} that yielded its line.
+     */
+    public void resolved(String tier) {
+        resolutions.computeIfAbsent(tier, name -> Counter.builder("ocr.ladder.resolved")
+                .description("Recognized checks by the tier that found the line, none when no tier did")
+                .tag("tier", name)
+                .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * Counts a check that yielded no result.
+     */
+    public void failure(String reason) {
+        failures.computeIfAbsent(reason, name -> Counter.builder("ocr.failures")
+                .tag("reason", name)
+                .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * Counts an accepted MICR line that a field couldn't be parsed from.
+     */
+    public void missingField(String field, ToadLine.FieldError reason) {
+        missingFields.computeIfAbsent(field + '/' + reason, key -> Counter.builder("ocr.toadline.missing")
+                .description("Accepted MICR lines without the field")
+                .tag("field", field)
+                .tag("reason", reason.name().toLowerCase())
+                .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * Times consecutive stages, each from the end of the previous one.
+     */
+    public final class StageClock {
+
+        private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+        private long last = System.nanoTime();
+
+        /**
+         * Ends {@code stage} now.
+         */
+        public void lap(String stage) {
+            long now = System.nanoTime();
+            record(stage, now - last);
+            last = now;
+        }
+
+        /**
+         * Times a stage that was measured elsewhere.
+         */
+        public void record(String stage, long nanos) {
+            stageNanos.merge(stage, nanos, Long::sum);
+            recordStage(stage, nanos);
+        }
+
+        /**
+         * @return nanoseconds per stage in the order the stages ran
+         */
+        public Map<String, Long> getStageNanos() {
+            return stageNanos;
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package com.stackleader.check.ocr;
 
-import com.recognition.software.jdeskew.ImageDeskew;
-import com.recognition.software.jdeskew.ImageUtil;
-import de.vorb.tesseract.tools.preprocessing.binarization.Otsu;
-import de.vorb.tesseract.tools.preprocessing.binarization.Sauvola;
+import com.stackleader.check.ocr.OcrMetrics.StageClock;
+import com.stackleader.check.ocr.preprocessing.FlipStage;
+import com.stackleader.check.ocr.preprocessing.MicrBandLocator;
+import com.stackleader.check.ocr.preprocessing.OrientationClassifier;
+import com.stackleader.check.ocr.preprocessing.OrientationEstimate;
+import com.stackleader.check.ocr.preprocessing.OrientationEstimate.Orientation;
+import com.stackleader.check.ocr.preprocessing.PipelineWorkspace;
+import com.stackleader.check.ocr.preprocessing.PipelineWorkspacePool;
+import com.stackleader.check.ocr.preprocessing.PixelBuffer;
+import com.stackleader.check.ocr.preprocessing.PreprocessingPipeline;
+import com.stackleader.check.ocr.preprocessing.PreprocessingStage;
+import com.stackleader.check.ocr.preprocessing.ResolutionStage;
 import java.awt.image.BufferedImage;
 import java.util.Comparator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import net.sourceforge.tess4j.ITessAPI;
-import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.Word;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -20,42 +30,106 @@ import org.springframework.stereotype.Component;
 @Component
 public class OcrProcessor {
 
-    private static final Otsu OTSU = new Otsu();
-    private static final Sauvola SAUVOLA = new Sauvola();
+    // converts the decoded image only, the resolution stage runs before binarization
+    private static final PreprocessingPipeline GRAYSCALE = new PreprocessingPipeline();
+    private static final MicrBandLocator MICR_BAND_LOCATOR = new MicrBandLocator();
+    private static final FlipStage FLIP = new FlipStage();
+    private static final OrientationClassifier ORIENTATION_CLASSIFIER = new OrientationClassifier();
+    /**
+     * Below this the classifier is only trusted to order the serial attempts,
+     * a race is run instead if enabled.
+     */
+    private static final double MIN_ORIENTATION_CONFIDENCE = 0.5;
+    /**
+     * Reported as the tier of checks no tier yielded a line for.
+     */
+    private static final String UNRESOLVED = "none";
 
     @Autowired
-    private Tesseract tesseract;
+    private OcrEnginePool ocrEnginePool;
 
-    public Word extractToadLine(BufferedImage bi) {
-        BufferedImage binary = convertToBinary(bi);
-        BufferedImage imageDeSkew = imageDeSkew(binary);
-        List<Word> words = tesseract.getWords(imageDeSkew, ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE);
-        sortWords(words);
+    @Autowired
+    private OcrMetrics ocrMetrics;
 
-        Word toadLine = words.stream()
-                .filter(word -> word.getConfidence() > 30)
-                .filter(word -> word.getText().length() > 10)
-                .findFirst().orElse(retryFlippedImage(imageDeSkew));
-        return toadLine;
+    @Autowired
+    private PipelineWorkspacePool workspacePool;
+
+    @Autowired(required = false)
+    private OrientationRace orientationRace;
+
+    /**
+     * Reduces oversized frames before binarization, when configured.
+     */
+    @Autowired(required = false)
+    private ResolutionStage resolutionStage;
+
+    /**
+     * Lowers the quality level under load, when configured.
+     */
+    @Autowired(required = false)
+    private DegradationController degradationController;
+
+    /**
+     * Tiers tried in order until one yields a line whose routing number
+     * passes the check digit.
+     */
+    @Value("${ocr.ladder:line,sparse,auto}")
+    private List<RecognitionTier> ladder = List.of(RecognitionTier.LINE, RecognitionTier.SPARSE, RecognitionTier.AUTO);
+
+    public Recognition recognize(BufferedImage bi) {
+        return recognize(bi, Deadline.none());
     }
 
-    private static BufferedImage imageDeSkew(BufferedImage bi) {
-        var deSkew = new ImageDeskew(bi);
-        var imageSkewAngle = deSkew.getSkewAngle();
-        final double skewThreshold = 0.05d;
-        if (imageSkewAngle > skewThreshold || imageSkewAngle < -skewThreshold) {
-            return ImageUtil.rotate(bi, -imageSkewAngle, bi.getWidth() / 2, bi.getHeight() / 2);
-        }
-        return bi;
+    /**
+     * @throws OcrTimeoutException if {@code deadline} expires first, it is
+     * checked between stages and while tesseract recognizes
+     */
+    public Recognition recognize(BufferedImage bi, Deadline deadline) {
+        return workspacePool.execute(workspace -> {
+            deadline.check();
+            QualityLevel level = degradationController != null ? degradationController.getLevel() : QualityLevel.FULL;
+            StageClock clock = ocrMetrics.startClock();
+            PixelBuffer frame = GRAYSCALE.run(bi, workspace, clock::lap);
+            if (resolutionStage != null) {
+                frame = apply(resolutionStage, frame, workspace, clock);
+            }
+            PixelBuffer imageDeSkew = level.getPreprocessing().run(frame, workspace, clock::lap);
+            deadline.check();
+            OrientationEstimate orientation = ORIENTATION_CLASSIFIER.classify(imageDeSkew);
+            clock.lap("orientation");
+            boolean confident = orientation.getConfidence() >= MIN_ORIENTATION_CONFIDENCE;
+            Orientation first = confident ? orientation.getOrientation() : Orientation.UPRIGHT;
+            Frames frames = new Frames(imageDeSkew, workspace, clock);
+            for (RecognitionTier tier : ladder.subList(0, Math.min(ladder.size(), level.getMaxTiers()))) {
+                deadline.check();
+                Optional<Attempt> attempt = !confident && level.isRace()
+                        && orientationRace != null && orientationRace.tryAcquire()
+                        ? raceOrientations(tier, frames, deadline, clock)
+                        : recognizeSerially(tier, first, level.isFlippedRetry(), frames, deadline, clock);
+                if (attempt.isPresent()) {
+                    ocrMetrics.resolved(tier.getName());
+                    return new Recognition(attempt.get().line, attempt.get().orientation, clock.getStageNanos(), level);
+                }
+            }
+            ocrMetrics.resolved(UNRESOLVED);
+            throw new NoSuchElementException("No MICR line with a valid routing number");
+        });
     }
 
-    private static BufferedImage flipCheckImage(BufferedImage bi) {
-        return ImageUtil.rotate(bi, 180, bi.getWidth() / 2, bi.getHeight() / 2);
+    private static PixelBuffer apply(PreprocessingStage stage, PixelBuffer input, PipelineWorkspace workspace,
+            StageClock clock) {
+        PixelBuffer output = stage.apply(input, workspace);
+        clock.lap(stage.getName());
+        return output;
     }
 
-    private static BufferedImage convertToBinary(BufferedImage image) {
-        BufferedImage binarize = SAUVOLA.binarize(image);
-        return binarize;
+    private static Optional<Word> findToadLine(List<Word> words) {
+        sortWords(words);
+        return words.stream()
+                .filter(word -> word.getConfidence() > 30)
+                .filter(word -> word.getText().length() > 10)
+                .filter(word -> ToadLine.hasValidRoutingNumber(word.getText()))
+                .findFirst();
     }
 
     static Comparator<Word> yPosComparator = Comparator.comparingDouble(word -> word.getBoundingBox().getY());
@@ -65,12 +139,102 @@ public class OcrProcessor {
         words.sort(widthComparator.reversed());
     }
 
-    private Word retryFlippedImage(BufferedImage imageDeSkew) {
-        List<Word> words = tesseract.getWords(flipCheckImage(imageDeSkew), ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE);
-        sortWords(words);
-        return words.stream()
-                .filter(word -> word.getConfidence() > 30)
-                .filter(word -> word.getText().length() > 10)
-                .findFirst().orElseThrow();
+    /**
+     * Recognizes the frame in the orientation the classifier suggests, then,
+     * if {@code flippedRetry}, the other one.
+     */
+    private Optional<Attempt> recognizeSerially(RecognitionTier tier, Orientation first, boolean flippedRetry,
+            Frames frames, Deadline deadline, StageClock clock) {
+        Optional<Attempt> attempt = recognize(tier, first, frames, deadline, clock, stage(tier));
+        if (attempt.isPresent() || !flippedRetry) {
+            return attempt;
+        }
+        ocrMetrics.flippedRetry();
+        Orientation second = first == Orientation.UPRIGHT ? Orientation.UPSIDE_DOWN : Orientation.UPRIGHT;
+        return recognize(tier, second, frames, deadline, clock, stage(tier) + "-flipped");
+    }
+
+    private Optional<Attempt> recognize(RecognitionTier tier, Orientation orientation, Frames frames,
+            Deadline deadline, StageClock clock, String stage) {
+        PixelBuffer frame = frames.get(orientation, tier.getRegion());
+        Optional<Word> line = findToadLine(ocrEnginePool.execute(
+                engine -> engine.getWords(frame, tier, ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE, deadline),
+                deadline));
+        clock.lap(stage);
+        return line.map(selected -> new Attempt(selected, orientation));
+    }
+
+    private Optional<Attempt> raceOrientations(RecognitionTier tier, Frames frames, Deadline deadline,
+            StageClock clock) {
+        PixelBuffer upright = frames.get(Orientation.UPRIGHT, tier.getRegion());
+        PixelBuffer flipped = frames.get(Orientation.UPSIDE_DOWN, tier.getRegion());
+        Optional<Attempt> attempt = orientationRace.race(upright, flipped, tier,
+                ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE, deadline,
+                (frameOrientation, words) -> findToadLine(words).map(line -> new Attempt(line, frameOrientation)));
+        clock.lap(stage(tier) + "-race");
+        return attempt;
+    }
+
+    /**
+     * @return name of the recognitions of {@code tier} in timings, including
+     * the selection of the line
+     */
+    private static String stage(RecognitionTier tier) {
+        return "ocr-" + tier.getName();
+    }
+
+    /**
+     * The frames the tiers recognize, each built on first use. Upright frames
+     * are in the request's workspace and flipped ones in its auxiliary
+     * workspace, so all of them stay intact while the ladder is climbed and
+     * both orientations can be read concurrently.
+     */
+    private static final class Frames {
+
+        private final PixelBuffer upright;
+        private final PipelineWorkspace workspace;
+        private final StageClock clock;
+        private PixelBuffer uprightBand;
+        private PixelBuffer flipped;
+        private PixelBuffer flippedBand;
+
+        Frames(PixelBuffer upright, PipelineWorkspace workspace, StageClock clock) {
+            this.upright = upright;
+            this.workspace = workspace;
+            this.clock = clock;
+        }
+
+        PixelBuffer get(Orientation orientation, RecognitionTier.Region region) {
+            if (orientation == Orientation.UPRIGHT) {
+                if (region == RecognitionTier.Region.FRAME) {
+                    return upright;
+                }
+                if (uprightBand == null) {
+                    uprightBand = apply(MICR_BAND_LOCATOR, upright, workspace, clock);
+                }
+                return uprightBand;
+            }
+            if (flipped == null) {
+                flipped = apply(FLIP, upright, workspace.getAuxiliary(), clock);
+            }
+            if (region == RecognitionTier.Region.FRAME) {
+                return flipped;
+            }
+            if (flippedBand == null) {
+                flippedBand = apply(MICR_BAND_LOCATOR, flipped, workspace.getAuxiliary(), clock);
+            }
+            return flippedBand;
+        }
+    }
+
+    private static final class Attempt {
+
+        private final Word line;
+        private final Orientation orientation;
+
+        Attempt(Word line, Orientation orientation) {
+            this.line = line;
+            this.orientation = orientation;
+        }
     }
 }
@@ -0,0 +1,22 @@
+package com.stackleader.check.ocr;
+
+/**
+ * Thrown when {@link OcrExecutor} sheds a request instead of queueing it.
+ */
+public class OcrRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public OcrRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return estimated seconds until the queue has drained enough to admit
+     * the request
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
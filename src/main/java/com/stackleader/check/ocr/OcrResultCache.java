@@ -0,0 +1,128 @@
+package com.stackleader.check.ocr;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Results of recent recognitions keyed by the SHA-256 of the encoded image,
+ * so a client resubmitting the same bytes gets the earlier answer without
+ * another recognition. Images that can't be decoded are remembered as well.
+ * Failures that may not repeat are not: a rejection by a saturated
+ * {@link OcrExecutor}, or no MICR line found, which under load may come from
+ * a reduced {@link QualityLevel} and deserves a retry at full quality.
+ *
+ * Concurrent lookups of an image that isn't cached yet wait for a single
+ * recognition, unless they run on an OCR thread themselves: the recognition
+ * they would wait for may be queued behind them on the same
+ * {@link OcrExecutor}, so they recognize the image on their own instead.
+ */
+public class OcrResultCache {
+
+    private final Cache<HashCode, Result> results;
+    private final ConcurrentMap<HashCode, CompletableFuture<Result>> loading = new ConcurrentHashMap<>();
+
+    public OcrResultCache(long maxEntries, Duration timeToLive, MeterRegistry meterRegistry) {
+        this.results = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, results, "ocr.results");
+    }
+
+    /**
+     * @param contentHash SHA-256 of the encoded image
+     * @param recognize runs when the image isn't cached
+     */
+    public ToadLine get(HashCode contentHash, Callable<ToadLine> recognize) throws Exception {
+        return get(contentHash, Deadline.none(), true, recognize);
+    }
+
+    /**
+     * @param contentHash SHA-256 of the encoded image
+     * @param deadline bounds the wait for a recognition of another caller
+     * @param joinLoads whether to wait for a recognition of the same image
+     * already running for another caller, false on OCR threads
+     * @param recognize runs when the image isn't cached
+     * @throws OcrTimeoutException if the deadline expired while waiting
+     */
+    public ToadLine get(HashCode contentHash, Deadline deadline, boolean joinLoads, Callable<ToadLine> recognize)
+            throws Exception {
+        while (true) {
+            Result cached = results.getIfPresent(contentHash);
+            if (cached != null) {
+                return cached.get();
+            }
+            CompletableFuture<Result> load = new CompletableFuture<>();
+            CompletableFuture<Result> running = loading.putIfAbsent(contentHash, load);
+            if (running == null) {
+                return load(contentHash, load, recognize).get();
+            }
+            if (!joinLoads) {
+                Result result = recognize(recognize);
+                results.put(contentHash, result);
+                return result.get();
+            }
+            try {
+                return running.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS).get();
+            } catch (TimeoutException ex) {
+                throw deadline.timeout();
+            } catch (ExecutionException ex) {
+                // the other caller's failure isn't remembered and may not repeat, like a rejection
+            }
+        }
+    }
+
+    private Result load(HashCode contentHash, CompletableFuture<Result> load, Callable<ToadLine> recognize)
+            throws Exception {
+        try {
+            Result result = recognize(recognize);
+            // cached before the load is dropped, so later lookups find one or the other
+            results.put(contentHash, result);
+            load.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(contentHash, load);
+        }
+    }
+
+    private static Result recognize(Callable<ToadLine> recognize) throws Exception {
+        try {
+            return new Result(recognize.call(), null);
+        } catch (IllegalArgumentException ex) {
+            return new Result(null, ex);
+        }
+    }
+
+    private static final class Result {
+
+        private final ToadLine toadLine;
+        private final IllegalArgumentException failure;
+
+        Result(ToadLine toadLine, IllegalArgumentException failure) {
+            this.toadLine = toadLine;
+            this.failure = failure;
+        }
+
+        ToadLine get() {
+            if (failure != null) {
+                throw failure;
+            }
+            return toadLine;
+        }
+    }
+}
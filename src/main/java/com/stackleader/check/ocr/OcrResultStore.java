@@ -0,0 +1,302 @@
+package com.stackleader.check.ocr;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.HashCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records every recognized check in PostgreSQL and finds earlier results by
+ * the hash of the image, so an image recognized before, by any replica, is
+ * answered without OCR.
+ *
+ * Records are queued and inserted by a background thread in JDBC batches of
+ * up to {@code batchSize}, so requests never wait on the database. When the
+ * database falls behind the queue fills up and further records are dropped
+ * and counted rather than slowing recognition down.
+ *
+ * Results read at a degraded quality level, or missing required fields,
+ * are recorded but never answered from the store, and a later complete
+ * result at full quality replaces them.
+ *
+ * Lookups are on the request path, so they are bounded by the query
+ * timeout. The table is created when the store is, bounded by the
+ * connection timeout. If that fails, the writer retries in the background,
+ * and until then, as for a while after a lookup failed, lookups count as
+ * misses without asking the database.
+ */
+public class OcrResultStore implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OcrResultStore.class);
+    /**
+     * How long lookups are skipped after one failed.
+     */
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS ocr_result ("
+            + "content_hash bytea PRIMARY KEY, "
+            + "toad_line text NOT NULL, "
+            + "routing_number varchar(9), "
+            + "account_number text, "
+            + "check_number text, "
+            + "amount text, "
+            + "aux_on_us text, "
+            + "confidence real NOT NULL, "
+            + "orientation text NOT NULL, "
+            + "stage_nanos jsonb NOT NULL, "
+            + "quality_level text NOT NULL, "
+            + "complete boolean NOT NULL, "
+            + "processed_at timestamptz NOT NULL)";
+    /**
+     * A replica may have recorded the same image in the meantime. A record
+     * at full quality stays unless it is incomplete and the new one is at
+     * full quality too, a degraded record is replaced by the newer one.
+     */
+    private static final String INSERT = "INSERT INTO ocr_result (content_hash, toad_line, routing_number, "
+            + "account_number, check_number, amount, aux_on_us, confidence, orientation, stage_nanos, "
+            + "quality_level, complete, processed_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?, ?, ?) ON CONFLICT (content_hash) DO UPDATE SET "
+            + "toad_line = EXCLUDED.toad_line, routing_number = EXCLUDED.routing_number, "
+            + "account_number = EXCLUDED.account_number, check_number = EXCLUDED.check_number, "
+            + "amount = EXCLUDED.amount, aux_on_us = EXCLUDED.aux_on_us, confidence = EXCLUDED.confidence, "
+            + "orientation = EXCLUDED.orientation, stage_nanos = EXCLUDED.stage_nanos, "
+            + "quality_level = EXCLUDED.quality_level, complete = EXCLUDED.complete, "
+            + "processed_at = EXCLUDED.processed_at "
+            + "WHERE ocr_result.quality_level <> 'FULL' "
+            + "OR NOT ocr_result.complete AND EXCLUDED.quality_level = 'FULL'";
+    private static final String SELECT = "SELECT toad_line FROM ocr_result "
+            + "WHERE content_hash = ? AND complete AND quality_level = 'FULL'";
+
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final int queryTimeoutSeconds;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Row> queue;
+    private final Thread writer;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private volatile boolean schemaReady;
+    /**
+     * When the writer next tries to create the table, if it doesn't exist.
+     */
+    private long schemaRetryAt;
+    private volatile long lookupRetryAt = System.nanoTime();
+    private volatile boolean closed;
+
+    /**
+     * @param queryTimeout limit of a lookup, rounded up to whole seconds
+     * as JDBC counts them
+     */
+    public OcrResultStore(DataSource dataSource, int batchSize, Duration flushInterval, int queueCapacity,
+            Duration queryTimeout, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.queryTimeoutSeconds = (int) Math.max(1, (queryTimeout.toMillis() + 999) / 1000);
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.written = Counter.builder("ocr.results.store.records")
+                .tag("outcome", "written")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("ocr.results.store.records")
+                .tag("outcome", "dropped")
+                .register(meterRegistry);
+        this.failed = Counter.builder("ocr.results.store.records")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        Gauge.builder("ocr.results.store.queue", queue, BlockingQueue::size)
+                .description("Records waiting to be written")
+                .register(meterRegistry);
+        // lookups are enabled once the table exists, startup waits at most the connection timeout
+        ensureSchema();
+        this.schemaRetryAt = System.nanoTime() + RETRY_NANOS;
+        this.writer = new Thread(this::writeQueued, "ocr-result-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return the MICR line recorded for the image, empty when there is none
+     * that is complete and at full quality, or the database can't be reached
+     */
+    public Optional<ToadLine> find(HashCode contentHash) {
+        if (!isAvailable()) {
+            return Optional.empty();
+        }
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement select = connection.prepareStatement(SELECT)) {
+            select.setQueryTimeout(queryTimeoutSeconds);
+            select.setBytes(1, contentHash.asBytes());
+            try (ResultSet result = select.executeQuery()) {
+                return result.next() ? Optional.of(new ToadLine(result.getString(1))) : Optional.empty();
+            }
+        } catch (SQLException ex) {
+            lookupRetryAt = System.nanoTime() + RETRY_NANOS;
+            LOG.warn("Could not look up result {}, skipping lookups for {} s: {}", contentHash,
+                    TimeUnit.NANOSECONDS.toSeconds(RETRY_NANOS), ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return whether lookups ask the database
+     */
+    boolean isAvailable() {
+        return schemaReady && System.nanoTime() - lookupRetryAt >= 0;
+    }
+
+    /**
+     * Queues the result for writing and returns immediately.
+     */
+    public void record(HashCode contentHash, ToadLine toadLine, Recognition recognition) {
+        String stageNanos;
+        try {
+            stageNanos = objectMapper.writeValueAsString(recognition.getStageNanos());
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+        Row row = new Row(contentHash, recognition.getLine().getText(), toadLine,
+                recognition.getLine().getConfidence(), recognition.getOrientation().name(), stageNanos,
+                recognition.getQualityLevel().name(), OffsetDateTime.now());
+        if (!queue.offer(row)) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (dataSource instanceof AutoCloseable) {
+            ((AutoCloseable) dataSource).close();
+        }
+    }
+
+    private void ensureSchema() {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE);
+            schemaReady = true;
+        } catch (SQLException ex) {
+            LOG.error("Could not create result table, will retry: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Creates the table if it doesn't exist yet, at most every few seconds.
+     */
+    private void retrySchema() {
+        if (!schemaReady && System.nanoTime() - schemaRetryAt >= 0) {
+            schemaRetryAt = System.nanoTime() + RETRY_NANOS;
+            ensureSchema();
+        }
+    }
+
+    private void writeQueued() {
+        List<Row> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Row first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    retrySchema();
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException ex) {
+                // close() interrupts, what is still queued is written below
+                if (!closed) {
+                    continue;
+                }
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Row> batch) {
+        if (!schemaReady) {
+            ensureSchema();
+        }
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            for (Row row : batch) {
+                insert.setBytes(1, row.contentHash.asBytes());
+                insert.setString(2, row.line);
+                setNullable(insert, 3, row.toadLine.getRoutingNumber());
+                setNullable(insert, 4, row.toadLine.getAccountNumber());
+                setNullable(insert, 5, row.toadLine.getCheckNumber());
+                setNullable(insert, 6, row.toadLine.getAmount());
+                setNullable(insert, 7, row.toadLine.getAuxOnUs());
+                insert.setFloat(8, row.confidence);
+                insert.setString(9, row.orientation);
+                insert.setString(10, row.stageNanos);
+                insert.setString(11, row.qualityLevel);
+                insert.setBoolean(12, row.toadLine.isComplete());
+                insert.setObject(13, row.processedAt);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            written.increment(batch.size());
+        } catch (SQLException ex) {
+            failed.increment(batch.size());
+            LOG.error("Could not write {} results: {}", batch.size(), ex.getMessage());
+        }
+    }
+
+    private static void setNullable(PreparedStatement statement, int index, String value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.VARCHAR);
+        } else {
+            statement.setString(index, value);
+        }
+    }
+
+    private static final class Row {
+
+        private final HashCode contentHash;
+        private final String line;
+        private final ToadLine toadLine;
+        private final float confidence;
+        private final String orientation;
+        private final String stageNanos;
+        private final String qualityLevel;
+        private final OffsetDateTime processedAt;
+
+        Row(HashCode contentHash, String line, ToadLine toadLine, float confidence, String orientation,
+                String stageNanos, String qualityLevel, OffsetDateTime processedAt) {
+            this.contentHash = contentHash;
+            this.line = line;
+            this.toadLine = toadLine;
+            this.confidence = confidence;
+            this.orientation = orientation;
+            this.stageNanos = stageNanos;
+            this.qualityLevel = qualityLevel;
+            this.processedAt = processedAt;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.stackleader.check.ocr;
+
+/**
+ * Thrown when a recognition runs past its {@link Deadline}.
+ */
+public class OcrTimeoutException extends RuntimeException {
+
+    public OcrTimeoutException(String message) {
+        super(message);
+    }
+}
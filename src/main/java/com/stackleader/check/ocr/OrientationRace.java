@@ -0,0 +1,191 @@
+package com.stackleader.check.ocr;
+
+import com.stackleader.check.ocr.preprocessing.OrientationEstimate.Orientation;
+import com.stackleader.check.ocr.preprocessing.PixelBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import net.sourceforge.tess4j.Word;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Recognizes the upright and the flipped frame of a check at the same time
+ * on two engines, so an upside-down upload costs one recognition of latency
+ * instead of two. The first orientation whose words yield an accepted line
+ * wins and the other one is cancelled.
+ *
+ * At most {@code maxExtraEngines} races run at once, each occupying one
+ * engine more than a serial recognition would; the engine pool is sized
+ * with those engines beyond one per OCR thread. Callers that don't get a
+ * permit from {@link #tryAcquire()} recognize serially.
+ */
+public class OrientationRace implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrientationRace.class);
+
+    private final OcrEnginePool ocrEnginePool;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+
+    public OrientationRace(OcrEnginePool ocrEnginePool, int maxExtraEngines) {
+        if (maxExtraEngines < 1) {
+            throw new IllegalArgumentException("maxExtraEngines must be positive: " + maxExtraEngines);
+        }
+        this.ocrEnginePool = ocrEnginePool;
+        this.permits = new Semaphore(maxExtraEngines);
+        AtomicInteger threadCount = new AtomicInteger();
+        // a permit is only returned once both lanes of its race are done
+        this.executor = Executors.newFixedThreadPool(2 * maxExtraEngines, runnable -> {
+            Thread thread = new Thread(runnable, "orientation-race-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Claims a race. A successful claim must be followed by
+     * {@link #race(PixelBuffer, PixelBuffer, RecognitionTier, int, Deadline, BiFunction)}, which returns
+     * the permit.
+     */
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    /**
+     * Recognizes both frames concurrently. Returns once neither lane reads
+     * the frames anymore, a cancelled lane may still be recognizing on its
+     * own copy until tesseract next asks its monitor whether to go on.
+     *
+     * @param tier how both frames are recognized
+     * @param deadline both lanes stop once it expires
+     * @param select picks the accepted line from the words of a frame, given
+     * the orientation the frame has if the line is accepted
+     * @return the selection of the first frame that yields one
+     */
+    public <T> Optional<T> race(PixelBuffer upright, PixelBuffer flipped, RecognitionTier tier,
+            int pageIteratorLevel, Deadline deadline, BiFunction<Orientation, List<Word>, Optional<T>> select) {
+        AtomicInteger running = new AtomicInteger(2);
+        Runnable laneDone = () -> {
+            if (running.decrementAndGet() == 0) {
+                permits.release();
+            }
+        };
+        CompletionService<Optional<T>> completion = new ExecutorCompletionService<>(executor);
+        Lane<T> uprightLane = new Lane<>(Orientation.UPRIGHT, upright, tier, pageIteratorLevel, deadline.child(),
+                select, laneDone);
+        Lane<T> flippedLane = new Lane<>(Orientation.UPSIDE_DOWN, flipped, tier, pageIteratorLevel, deadline.child(),
+                select, laneDone);
+        uprightLane.future = completion.submit(uprightLane);
+        flippedLane.future = completion.submit(flippedLane);
+
+        Optional<T> winner = Optional.empty();
+        try {
+            for (int done = 0; done < 2 && winner.isEmpty(); done++) {
+                try {
+                    winner = completion.take().get();
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof OcrTimeoutException) {
+                        throw (OcrTimeoutException) ex.getCause();
+                    }
+                    LOG.warn("Recognition failed", ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            uprightLane.cancel();
+            flippedLane.cancel();
+            uprightLane.awaitDetached();
+            flippedLane.awaitDetached();
+        }
+        return winner;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private final class Lane<T> implements Callable<Optional<T>> {
+
+        private final Orientation orientation;
+        private final PixelBuffer frame;
+        private final RecognitionTier tier;
+        private final int pageIteratorLevel;
+        private final Deadline deadline;
+        private final BiFunction<Orientation, List<Word>, Optional<T>> select;
+        private final Runnable done;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch detached = new CountDownLatch(1);
+        private volatile Future<Optional<T>> future;
+
+        Lane(Orientation orientation, PixelBuffer frame, RecognitionTier tier, int pageIteratorLevel,
+                Deadline deadline, BiFunction<Orientation, List<Word>, Optional<T>> select, Runnable done) {
+            this.orientation = orientation;
+            this.frame = frame;
+            this.tier = tier;
+            this.pageIteratorLevel = pageIteratorLevel;
+            this.deadline = deadline;
+            this.select = select;
+            this.done = done;
+        }
+
+        @Override
+        public Optional<T> call() {
+            if (!claimed.compareAndSet(false, true)) {
+                return Optional.empty();
+            }
+            try {
+                Optional<T> line = select.apply(orientation, ocrEnginePool.execute(
+                        engine -> engine.getWords(frame, tier, pageIteratorLevel, deadline, detached::countDown),
+                        deadline));
+                line.ifPresent(selected -> LOG.debug("{} frame yielded a line", orientation));
+                return line;
+            } finally {
+                detached.countDown();
+                done.run();
+            }
+        }
+
+        /**
+         * Keeps a lane that hasn't started from running, interrupts one that
+         * is still waiting for an engine and stops one that is recognizing.
+         */
+        void cancel() {
+            deadline.cancel();
+            if (claimed.compareAndSet(false, true)) {
+                detached.countDown();
+                done.run();
+            } else {
+                future.cancel(true);
+            }
+        }
+
+        void awaitDetached() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    detached.await();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
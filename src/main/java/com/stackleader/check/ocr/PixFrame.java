@@ -0,0 +1,109 @@
+package com.stackleader.check.ocr;
+
+import com.stackleader.check.ocr.preprocessing.PixelBuffer;
+import com.sun.jna.ptr.PointerByReference;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import net.sourceforge.lept4j.Leptonica1;
+import net.sourceforge.lept4j.Pix;
+
+/**
+ * A frame laid out as a Leptonica {@code Pix}, handed to tesseract with
+ * {@code TessBaseAPISetImage2}. Rows are whole 32-bit words in native byte
+ * order with the first pixel in the most significant bits; a set bit of a
+ * 1 bpp {@code Pix} is black, the opposite of {@link PixelBuffer}, and
+ * padding bits are clear. Tesseract then takes its copy of the image with
+ * one block copy, instead of converting a raw buffer pixel by pixel.
+ *
+ * The words are in a direct buffer that only grows, the {@code Pix} is a
+ * header pointing at it. Like its engine, a frame is used by one thread at
+ * a time.
+ */
+final class PixFrame implements AutoCloseable {
+
+    private static final VarHandle BIG_ENDIAN_INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private IntBuffer words = allocate(0);
+    private Pix pix;
+
+    /**
+     * Copies {@code frame} into the buffer.
+     *
+     * @return the {@code Pix} viewing the buffer, valid until the next call
+     */
+    Pix wrap(PixelBuffer frame) {
+        int depth = depth(frame);
+        int wpl = wordsPerLine(frame.getWidth(), depth);
+        int length = wpl * frame.getHeight();
+        if (words.capacity() < length) {
+            words = allocate(length);
+        }
+        copy(frame, words, wpl);
+        if (pix == null) {
+            pix = Leptonica1.pixCreateHeader(frame.getWidth(), frame.getHeight(), depth);
+        } else {
+            Leptonica1.pixSetDimensions(pix, frame.getWidth(), frame.getHeight(), depth);
+        }
+        Leptonica1.pixSetWpl(pix, wpl);
+        Leptonica1.pixSetData(pix, words);
+        return pix;
+    }
+
+    static int depth(PixelBuffer frame) {
+        return frame.getFormat() == PixelBuffer.Format.BINARY ? 1 : 8;
+    }
+
+    static int wordsPerLine(int width, int depth) {
+        return (width * depth + 31) >>> 5;
+    }
+
+    /**
+     * Converts the rows of {@code frame} to {@code wpl} words each, four
+     * bytes to a word.
+     */
+    static void copy(PixelBuffer frame, IntBuffer words, int wpl) {
+        final byte[] data = frame.getData();
+        final int stride = frame.getStride();
+        final boolean binary = frame.getFormat() == PixelBuffer.Format.BINARY;
+        // a binary row ends within its last byte, gray rows are padded with whole zero bytes
+        final int rowBits = frame.getWidth() * depth(frame);
+        final int lastWordMask = (rowBits & 31) == 0 ? -1 : -1 << (32 - (rowBits & 31));
+        final int invert = binary ? -1 : 0;
+        final int fullWords = stride >>> 2;
+        for (int y = 0; y < frame.getHeight(); y++) {
+            final int in = y * stride;
+            final int out = y * wpl;
+            for (int i = 0; i < fullWords; i++) {
+                words.put(out + i, (int) BIG_ENDIAN_INT.get(data, in + (i << 2)) ^ invert);
+            }
+            if (fullWords < wpl) {
+                int word = 0;
+                for (int b = fullWords << 2; b < (fullWords + 1) << 2; b++) {
+                    word = word << 8 | (b < stride ? data[in + b] & 0xFF : 0);
+                }
+                words.put(out + fullWords, word ^ invert);
+            }
+            words.put(out + wpl - 1, words.get(out + wpl - 1) & lastWordMask);
+        }
+    }
+
+    private static IntBuffer allocate(int words) {
+        return ByteBuffer.allocateDirect(words << 2).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Detaches the buffer before destroying the header, Leptonica would
+     * otherwise free memory it doesn't own.
+     */
+    @Override
+    public void close() {
+        if (pix != null) {
+            Leptonica1.pixSetData(pix, null);
+            Leptonica1.pixDestroy(new PointerByReference(pix.getPointer()));
+            pix = null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.stackleader.check.ocr;
+
+import com.stackleader.check.ocr.preprocessing.DeskewStage;
+import com.stackleader.check.ocr.preprocessing.OtsuStage;
+import com.stackleader.check.ocr.preprocessing.PreprocessingPipeline;
+import com.stackleader.check.ocr.preprocessing.ProjectionSkewEstimator;
+import com.stackleader.check.ocr.preprocessing.SauvolaStage;
+import de.vorb.tesseract.tools.preprocessing.binarization.IntegralSauvola;
+
+/**
+ * How much work {@link OcrProcessor} spends on a check, from the most
+ * thorough to the cheapest. A {@link DegradationController} moves
+ * recognition down the levels as load rises and back up once it falls.
+ */
+public enum QualityLevel {
+
+    /**
+     * Sauvola, every skew corrected, the whole ladder and both orientations,
+     * raced when the classifier is unsure.
+     */
+    FULL(new PreprocessingPipeline(
+            new SauvolaStage(new IntegralSauvola()),
+            new DeskewStage()),
+            Integer.MAX_VALUE, true, true),
+    /**
+     * Skews under a degree are left, at most two tiers of the ladder are
+     * tried and orientations only one after the other.
+     */
+    REDUCED(new PreprocessingPipeline(
+            new SauvolaStage(new IntegralSauvola()),
+            new DeskewStage(new ProjectionSkewEstimator(), 0.3, 1)),
+            2, false, true),
+    /**
+     * Otsu's global threshold, the first tier of the ladder and only the
+     * orientation the classifier picks.
+     */
+    MINIMAL(new PreprocessingPipeline(
+            new OtsuStage(),
+            new DeskewStage(new ProjectionSkewEstimator(), 0.3, 1)),
+            1, false, false);
+
+    private final PreprocessingPipeline preprocessing;
+    private final int maxTiers;
+    private final boolean race;
+    private final boolean flippedRetry;
+
+    QualityLevel(PreprocessingPipeline preprocessing, int maxTiers, boolean race, boolean flippedRetry) {
+        this.preprocessing = preprocessing;
+        this.maxTiers = maxTiers;
+        this.race = race;
+        this.flippedRetry = flippedRetry;
+    }
+
+    /**
+     * @return binarization and deskew of the grayscale frame
+     */
+    public PreprocessingPipeline getPreprocessing() {
+        return preprocessing;
+    }
+
+    /**
+     * @return tiers of the ladder tried, from its start
+     */
+    public int getMaxTiers() {
+        return maxTiers;
+    }
+
+    /**
+     * @return whether both orientations may be recognized concurrently
+     */
+    public boolean isRace() {
+        return race;
+    }
+
+    /**
+     * @return whether the other orientation is tried after the first fails
+     */
+    public boolean isFlippedRetry() {
+        return flippedRetry;
+    }
+}
@@ -0,0 +1,28 @@
+package com.stackleader.check.ocr;
+
+import com.stackleader.check.ocr.preprocessing.OrientationEstimate.Orientation;
+import java.util.Map;
+import lombok.Data;
+import net.sourceforge.tess4j.Word;
+
+/**
+ * The MICR line {@link OcrProcessor} found on a check and how it got there.
+ */
+@Data
+public class Recognition {
+
+    private final Word line;
+    /**
+     * Orientation of the frame the line was read from.
+     */
+    private final Orientation orientation;
+    /**
+     * Nanoseconds spent per stage, in the order the stages ran.
+     */
+    private final Map<String, Long> stageNanos;
+    /**
+     * Level the check was recognized at, below {@link QualityLevel#FULL}
+     * while the service sheds work.
+     */
+    private final QualityLevel qualityLevel;
+}
@@ -0,0 +1,78 @@
+package com.stackleader.check.ocr;
+
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
+
+/**
+ * How a frame is handed to tesseract, from the cheapest to the most thorough.
+ * {@link OcrProcessor} climbs a ladder of tiers, {@code ocr.ladder}, and
+ * stops at the first that yields a line whose routing number passes the
+ * check digit.
+ */
+public enum RecognitionTier {
+
+    /**
+     * The MICR band as one line of E13B symbols.
+     */
+    LINE(TessPageSegMode.PSM_SINGLE_LINE, true, Region.BAND),
+    /**
+     * The MICR band as one line, without tesseract's line specific
+     * processing.
+     */
+    RAW_LINE(TessPageSegMode.PSM_RAW_LINE, true, Region.BAND),
+    /**
+     * As much E13B text as can be found in the MICR band, in no order.
+     */
+    SPARSE(TessPageSegMode.PSM_SPARSE_TEXT, true, Region.BAND),
+    /**
+     * Layout analysis of the whole frame with any symbol of the traineddata,
+     * for checks whose band was missed or cropped badly.
+     */
+    AUTO(TessPageSegMode.PSM_AUTO_OSD, false, Region.FRAME);
+
+    /**
+     * Digits and the transit, amount, on-us and dash symbols as the e13b
+     * traineddata names them.
+     */
+    static final String E13B_SYMBOLS = "0123456789ABCD";
+
+    /**
+     * Part of the deskewed frame a tier recognizes.
+     */
+    public enum Region {
+        BAND,
+        FRAME
+    }
+
+    private final int pageSegMode;
+    private final String whitelist;
+    private final Region region;
+
+    RecognitionTier(int pageSegMode, boolean e13bOnly, Region region) {
+        this.pageSegMode = pageSegMode;
+        this.whitelist = e13bOnly ? E13B_SYMBOLS : "";
+        this.region = region;
+    }
+
+    public int getPageSegMode() {
+        return pageSegMode;
+    }
+
+    /**
+     * @return the characters tesseract may output, empty for any
+     */
+    public String getWhitelist() {
+        return whitelist;
+    }
+
+    public Region getRegion() {
+        return region;
+    }
+
+    /**
+     * @return what the tier's recognitions are reported as in timings and
+     * metrics
+     */
+    public String getName() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
@@ -1,13 +1,28 @@
 package com.stackleader.check.ocr;
 
-import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import static org.apache.commons.validator.routines.checkdigit.ABANumberCheckDigit.ABAN_CHECK_DIGIT;
 
 /**
+ * The fields of a recognized MICR line. The line is read in the E13B
+ * symbols as the traineddata recognizes them: {@code A} transit,
+ * {@code B} amount, {@code C} on-us and {@code D} dash. From left to right a
+ * line holds the Aux On-Us field ({@code C...C}, the check number of business
+ * checks), the transit field ({@code A<routing number>A}), the On-Us field
+ * (account number, then the check number of personal checks, separated by
+ * on-us symbols) and the amount field ({@code B<10 digits>B}), which the
+ * bank of first deposit encodes.
+ *
+ * Parsing never fails, a field that can't be read is null and the reason is
+ * in {@link #getErrors()}.
  *
  * @author dcnorris
  */
@@ -15,53 +30,245 @@ import static org.apache.commons.validator.routines.checkdigit.ABANumberCheckDig
 @EqualsAndHashCode
 public class ToadLine {
 
-    private static final Pattern ROUTING_NUMBER_REGEX = Pattern.compile(".*?A(?<routingNumber>[0-9]{9})");
-    private static final Pattern ACCOUNT_NUMBER_REGEX = Pattern.compile(".*?A(?<routingNumber>[0-9]{9})A(?<accountNumber>[0-9]+)");
-    private static final Pattern CHECK_NUMBER_REGEX = Pattern.compile(".*?C(?<checkNumber>[0-9]+)C");
+    public static final String ROUTING_NUMBER = "routingNumber";
+    public static final String ACCOUNT_NUMBER = "accountNumber";
+    public static final String CHECK_NUMBER = "checkNumber";
+    public static final String AMOUNT = "amount";
+    public static final String AUX_ON_US = "auxOnUs";
+
+    private static final char TRANSIT = 'A';
+    private static final char AMOUNT_SYMBOL = 'B';
+    private static final char ON_US = 'C';
+    private static final char DASH = 'D';
+    private static final char NO_SYMBOL = ' ';
+
+    /**
+     * Why a field of the line could not be read.
+     */
+    public enum FieldError {
+        /**
+         * The line has no such field.
+         */
+        ABSENT,
+        /**
+         * The field's symbols were found but not the digits expected
+         * between them.
+         */
+        MALFORMED,
+        /**
+         * A routing number whose ABA check digit doesn't match.
+         */
+        INVALID_CHECK_DIGIT
+    }
+
     private String checkNumber;
     private String routingNumber;
     private String accountNumber;
+    /**
+     * Dollars and cents, like {@code 1234.56}.
+     */
     private String amount;
+    private String auxOnUs;
+    /**
+     * Fields that could not be read by name, absent optional fields are not
+     * listed.
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, FieldError> errors = new LinkedHashMap<>();
 
     public ToadLine(String toadLine) {
-        initializeFromToadLine(toadLine);
+        parse(segments(toadLine));
+    }
+
+    /**
+     * Whether a recognized line has a routing number between transit symbols
+     * that passes the ABA check digit.
+     */
+    public static boolean hasValidRoutingNumber(String toadLine) {
+        List<Segment> segments = segments(toadLine);
+        int transit = findTransit(segments);
+        return transit >= 0 && routingError(segments.get(transit)) == null;
+    }
 
+    /**
+     * Whether the line has the fields a check can't be processed without.
+     */
+    @JsonIgnore
+    public boolean isComplete() {
+        return routingNumber != null && accountNumber != null;
     }
 
-    private void initializeFromToadLine(String toadLine) {
-        routingNumber = extractRoutingNumber(toadLine);
-        accountNumber = extractAccountNumber(toadLine);
-        extractCheckNumber(toadLine).ifPresent(this::setCheckNumber);
+    /**
+     * Splits the line in one pass into runs of digits, each starting at the
+     * symbol before it. Spaces are dropped; any other character is an OCR
+     * reject and damages the run it is in.
+     */
+    private static List<Segment> segments(String toadLine) {
+        List<Segment> segments = new ArrayList<>();
+        Segment current = new Segment(NO_SYMBOL);
+        segments.add(current);
+        for (int i = 0; i < toadLine.length(); i++) {
+            char c = toadLine.charAt(i);
+            if (c >= '0' && c <= '9') {
+                current.digits.append(c);
+            } else if (c == TRANSIT || c == AMOUNT_SYMBOL || c == ON_US || c == DASH) {
+                current = new Segment(c);
+                segments.add(current);
+            } else if (!Character.isWhitespace(c)) {
+                current.damaged = true;
+            }
+        }
+        return segments;
     }
 
-    private Optional<String> extractCheckNumber(String toadLine) {
-        Matcher matcher = CHECK_NUMBER_REGEX.matcher(toadLine);
-        if (matcher.find()) {
-            String extractedCheckNumber = matcher.group("checkNumber");
-            return Optional.ofNullable(extractedCheckNumber);
+    private void parse(List<Segment> segments) {
+        int transit = findTransit(segments);
+        if (transit < 0) {
+            errors.put(ROUTING_NUMBER, FieldError.ABSENT);
+            // without the transit field there is nothing to tell the account and check number apart
+            errors.put(ACCOUNT_NUMBER, FieldError.ABSENT);
+            errors.put(CHECK_NUMBER, FieldError.ABSENT);
+            return;
+        }
+        FieldError routingError = routingError(segments.get(transit));
+        if (routingError == null) {
+            routingNumber = segments.get(transit).digits.toString();
+        } else {
+            errors.put(ROUTING_NUMBER, routingError);
         }
-        return Optional.empty();
+        parseAuxOnUs(segments, transit);
+        int amountStart = parseAmount(segments, transit + 1);
+        parseOnUs(segments, transit + 1, amountStart);
     }
 
-    private String extractRoutingNumber(String toadLine) {
-        Matcher matcher = ROUTING_NUMBER_REGEX.matcher(toadLine);
-        if (matcher.find()) {
-            String extractedRoutingNumber = matcher.group("routingNumber");
-            if (ABAN_CHECK_DIGIT.isValid(extractedRoutingNumber)) {
-                return extractedRoutingNumber;
+    /**
+     * @return the index of the segment opening the transit field, -1 when
+     * the line has no transit symbol followed by digits
+     */
+    private static int findTransit(List<Segment> segments) {
+        int open = -1;
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            if (segment.symbol != TRANSIT || segment.digits.length() == 0) {
+                continue;
+            }
+            if (i + 1 < segments.size() && segments.get(i + 1).symbol == TRANSIT) {
+                return i;
+            }
+            if (open < 0) {
+                // a closing symbol the OCR missed
+                open = i;
             }
         }
+        return open;
+    }
 
-        throw new IllegalStateException("Could not extract routing number from image text");
+    private static FieldError routingError(Segment transit) {
+        if (transit.damaged || transit.digits.length() != 9) {
+            return FieldError.MALFORMED;
+        }
+        return ABAN_CHECK_DIGIT.isValid(transit.digits.toString()) ? null : FieldError.INVALID_CHECK_DIGIT;
     }
 
-    private String extractAccountNumber(String toadLine) {
-        Matcher matcher = ACCOUNT_NUMBER_REGEX.matcher(toadLine);
-        if (matcher.find()) {
-            String extractedAccountNumber = matcher.group("accountNumber");
-            return extractedAccountNumber;
+    /**
+     * The Aux On-Us field is the only one left of the transit field; a
+     * single digit between the two is the external processing code.
+     */
+    private void parseAuxOnUs(List<Segment> segments, int transit) {
+        for (int i = 0; i < transit; i++) {
+            Segment segment = segments.get(i);
+            if (segment.symbol != ON_US) {
+                continue;
+            }
+            StringBuilder digits = new StringBuilder(segment.digits);
+            boolean damaged = segment.damaged;
+            int close = i + 1;
+            while (close < transit && segments.get(close).symbol == DASH) {
+                digits.append('-').append(segments.get(close).digits);
+                damaged |= segments.get(close).damaged;
+                close++;
+            }
+            if (close < transit && segments.get(close).symbol == ON_US && digits.length() > 0 && !damaged) {
+                auxOnUs = digits.toString();
+            } else {
+                errors.put(AUX_ON_US, FieldError.MALFORMED);
+            }
+            return;
         }
-        throw new IllegalStateException("Could not extract account number from image text");
     }
 
+    /**
+     * @return the index of the segment opening the amount field, or the
+     * number of segments when there is none
+     */
+    private int parseAmount(List<Segment> segments, int from) {
+        for (int i = from; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            if (segment.symbol != AMOUNT_SYMBOL) {
+                continue;
+            }
+            boolean closed = i + 1 < segments.size() && segments.get(i + 1).symbol == AMOUNT_SYMBOL;
+            if (closed && !segment.damaged && segment.digits.length() == 10) {
+                amount = new BigDecimal(segment.digits.toString()).movePointLeft(2).toPlainString();
+            } else {
+                errors.put(AMOUNT, FieldError.MALFORMED);
+            }
+            return i;
+        }
+        return segments.size();
+    }
+
+    /**
+     * The On-Us field runs from the closing transit symbol to the amount
+     * field. Its first group of digits is the account number, a group after
+     * it is the check number unless the Aux On-Us field holds that.
+     */
+    private void parseOnUs(List<Segment> segments, int from, int to) {
+        List<String> groups = new ArrayList<>(3);
+        StringBuilder group = new StringBuilder();
+        boolean damaged = false;
+        for (int i = from; i < to; i++) {
+            Segment segment = segments.get(i);
+            if (segment.symbol == DASH) {
+                group.append('-');
+            } else if (group.length() > 0 || damaged) {
+                groups.add(damaged ? null : group.toString());
+                group.setLength(0);
+                damaged = false;
+            }
+            group.append(segment.digits);
+            damaged |= segment.damaged;
+        }
+        if (group.length() > 0 || damaged) {
+            groups.add(damaged ? null : group.toString());
+        }
+
+        if (groups.isEmpty()) {
+            errors.put(ACCOUNT_NUMBER, FieldError.ABSENT);
+        } else if (groups.get(0) == null) {
+            errors.put(ACCOUNT_NUMBER, FieldError.MALFORMED);
+        } else {
+            accountNumber = groups.get(0);
+        }
+        if (auxOnUs != null) {
+            checkNumber = auxOnUs;
+        } else if (groups.size() < 2) {
+            errors.put(CHECK_NUMBER, FieldError.ABSENT);
+        } else if (groups.get(1) == null) {
+            errors.put(CHECK_NUMBER, FieldError.MALFORMED);
+        } else {
+            checkNumber = groups.get(1);
+        }
+    }
+
+    private static final class Segment {
+
+        private final char symbol;
+        private final StringBuilder digits = new StringBuilder();
+        private boolean damaged;
+
+        Segment(char symbol) {
+            this.symbol = symbol;
+        }
+    }
 }
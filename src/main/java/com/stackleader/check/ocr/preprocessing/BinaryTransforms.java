@@ -0,0 +1,118 @@
+package com.stackleader.check.ocr.preprocessing;
+
+/**
+ * Geometric transforms of binary frames that read and write packed rows
+ * directly.
+ */
+final class BinaryTransforms {
+
+    private static final byte[] REVERSED_BITS = reversedBits();
+
+    private BinaryTransforms() {
+    }
+
+    /**
+     * Rotates a binary frame about its center onto a canvas enlarged to hold
+     * the rotated corners, with white where the source doesn't reach. The
+     * canvas matches jdeskew's {@code ImageUtil.rotate}; pixels are sampled
+     * nearest neighbor, which keeps the output bilevel.
+     *
+     * @param degrees clockwise rotation
+     * @return {@code target}
+     */
+    static PixelBuffer rotate(PixelBuffer source, double degrees, PixelBuffer target) {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int cx = width / 2;
+        final int cy = height / 2;
+        final double theta = Math.toRadians(degrees);
+        final double cos = Math.cos(theta);
+        final double sin = Math.sin(theta);
+
+        int minX = 0;
+        int maxX = 0;
+        int minY = 0;
+        int maxY = 0;
+        final int[] corners = {0, 0, width, 0, width, height, 0, height};
+        for (int i = 0; i < corners.length; i += 2) {
+            final int x = (int) (cos * (corners[i] - cx) - sin * (corners[i + 1] - cy) + cx);
+            final int y = (int) (sin * (corners[i] - cx) + cos * (corners[i + 1] - cy) + cy);
+            maxX = Math.max(maxX, x);
+            minX = Math.min(minX, x);
+            maxY = Math.max(maxY, y);
+            minY = Math.min(minY, y);
+        }
+
+        target.reset(maxX - minX, maxY - minY, PixelBuffer.Format.BINARY);
+        final int targetWidth = target.getWidth();
+        final int targetStride = target.getStride();
+        final byte[] out = target.getData();
+        final byte[] in = source.getData();
+        final int stride = source.getStride();
+
+        for (int y = 0; y < target.getHeight(); y++) {
+            // source position of the center of the first pixel of the row
+            final double dx = 0.5 - cx + minX;
+            final double dy = y + 0.5 - cy + minY;
+            double sx = cos * dx + sin * dy + cx;
+            double sy = -sin * dx + cos * dy + cy;
+            final int rowOffset = y * targetStride;
+            int bits = 0;
+            for (int x = 0; x < targetWidth; x++, sx += cos, sy -= sin) {
+                final int px = (int) Math.floor(sx);
+                final int py = (int) Math.floor(sy);
+                bits <<= 1;
+                if (px < 0 || py < 0 || px >= width || py >= height
+                        || (in[py * stride + (px >> 3)] & (0x80 >>> (px & 7))) != 0) {
+                    bits |= 1;
+                }
+                if ((x & 7) == 7) {
+                    out[rowOffset + (x >> 3)] = (byte) bits;
+                    bits = 0;
+                }
+            }
+            final int tail = targetWidth & 7;
+            if (tail != 0) {
+                out[rowOffset + (targetWidth >> 3)] = (byte) (bits << (8 - tail));
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Rotates a binary frame by 180 degrees.
+     *
+     * @return {@code target}
+     */
+    static PixelBuffer rotate180(PixelBuffer source, PixelBuffer target) {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int stride = source.getStride();
+        target.reset(width, height, PixelBuffer.Format.BINARY);
+        final byte[] in = source.getData();
+        final byte[] out = target.getData();
+        // reversing a row moves its padding bits to the front
+        final int padding = stride * 8 - width;
+
+        for (int y = 0; y < height; y++) {
+            final int from = y * stride;
+            final int to = (height - 1 - y) * stride;
+            for (int b = 0; b < stride; b++) {
+                final int current = REVERSED_BITS[in[from + stride - 1 - b] & 0xFF] & 0xFF;
+                final int next = b + 1 < stride
+                        ? REVERSED_BITS[in[from + stride - 2 - b] & 0xFF] & 0xFF
+                        : 0;
+                out[to + b] = (byte) ((current << padding) | (next >>> (8 - padding)));
+            }
+        }
+        return target;
+    }
+
+    private static byte[] reversedBits() {
+        final byte[] reversed = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            reversed[i] = (byte) (Integer.reverse(i) >>> 24);
+        }
+        return reversed;
+    }
+}
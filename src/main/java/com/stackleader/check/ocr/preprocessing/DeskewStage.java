@@ -0,0 +1,54 @@
+package com.stackleader.check.ocr.preprocessing;
+
+/**
+ * Straightens a binary frame by the skew angle a
+ * {@link ProjectionSkewEstimator} finds. Frames whose estimate is close to
+ * level or not confident are passed through without rotating.
+ */
+public class DeskewStage implements PreprocessingStage {
+
+    private static final double SKEW_THRESHOLD = 0.05d;
+
+    private final ProjectionSkewEstimator estimator;
+    private final double minConfidence;
+    private final double skewThreshold;
+
+    /**
+     * @param minConfidence estimates below this confidence are ignored
+     * @param skewThreshold frames skewed less than this, in degrees either
+     * way, are not rotated
+     */
+    public DeskewStage(ProjectionSkewEstimator estimator, double minConfidence, double skewThreshold) {
+        this.estimator = estimator;
+        this.minConfidence = minConfidence;
+        this.skewThreshold = skewThreshold;
+    }
+
+    /**
+     * @param minConfidence estimates below this confidence are ignored
+     */
+    public DeskewStage(ProjectionSkewEstimator estimator, double minConfidence) {
+        this(estimator, minConfidence, SKEW_THRESHOLD);
+    }
+
+    public DeskewStage() {
+        // random noise scores about 0.2, lines of text above 0.6
+        this(new ProjectionSkewEstimator(), 0.3);
+    }
+
+    @Override
+    public PixelBuffer apply(PixelBuffer input, PipelineWorkspace workspace) {
+        final SkewEstimate skew = estimator.estimate(input);
+        final double imageSkewAngle = skew.getAngle();
+        if (skew.getConfidence() >= minConfidence
+                && (imageSkewAngle > skewThreshold || imageSkewAngle < -skewThreshold)) {
+            return BinaryTransforms.rotate(input, -imageSkewAngle, workspace.spare(input));
+        }
+        return input;
+    }
+
+    @Override
+    public String getName() {
+        return "deskew";
+    }
+}
@@ -0,0 +1,17 @@
+package com.stackleader.check.ocr.preprocessing;
+
+/**
+ * Turns a binary frame upside down.
+ */
+public class FlipStage implements PreprocessingStage {
+
+    @Override
+    public PixelBuffer apply(PixelBuffer input, PipelineWorkspace workspace) {
+        return BinaryTransforms.rotate180(input, workspace.spare(input));
+    }
+
+    @Override
+    public String getName() {
+        return "flip";
+    }
+}
@@ -0,0 +1,167 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import java.awt.Rectangle;
+import java.util.Optional;
+
+/**
+ * Finds the E13B MICR line of a binarized check image using the horizontal
+ * ink-density projection of the bottom of the image. The MICR line is the
+ * lowest band of text on a check, so the lowest run of inked rows with a
+ * plausible glyph height is taken as the band.
+ */
+public class MicrBandLocator implements PreprocessingStage {
+
+    private final double searchFraction;
+    private final double minRowDensity;
+    private final double maxRowDensity;
+    private final double minBandFraction;
+    private final double maxBandFraction;
+    private final double margin;
+
+    /**
+     * @param searchFraction fraction of the image height, measured from the
+     * bottom edge, that is searched for the band
+     * @param minRowDensity fraction of inked pixels a row needs to be part of
+     * a band
+     * @param maxRowDensity rows with more ink than this are treated as border
+     * or background rather than text
+     * @param minBandFraction minimum band height relative to the image height
+     * @param maxBandFraction maximum band height relative to the image height
+     * @param margin margin added above and below the band, relative to the
+     * band height
+     */
+    public MicrBandLocator(double searchFraction, double minRowDensity, double maxRowDensity,
+            double minBandFraction, double maxBandFraction, double margin) {
+        this.searchFraction = searchFraction;
+        this.minRowDensity = minRowDensity;
+        this.maxRowDensity = maxRowDensity;
+        this.minBandFraction = minBandFraction;
+        this.maxBandFraction = maxBandFraction;
+        this.margin = margin;
+    }
+
+    public MicrBandLocator() {
+        this(0.4, 0.02, 0.6, 0.015, 0.15, 0.75);
+    }
+
+    /**
+     * Locates the MICR band of a binary frame.
+     *
+     * @param binary binarized check image
+     * @return the band including its margin, or empty if no band was found
+     * or the frame is not binary
+     */
+    public Optional<Rectangle> locate(PixelBuffer binary) {
+        return locateBand(binary, false).map(band -> withMargin(band.y, band.height,
+                binary.getWidth(), binary.getHeight()));
+    }
+
+    /**
+     * Locates the lowest band of text, or with {@code fromTop} the topmost
+     * one, which is where the MICR line of an upside-down check is.
+     *
+     * @return the rows of the band without margin
+     */
+    Optional<Rectangle> locateBand(PixelBuffer binary, boolean fromTop) {
+        if (binary.getFormat() != PixelBuffer.Format.BINARY) {
+            return Optional.empty();
+        }
+        final int width = binary.getWidth();
+        final int height = binary.getHeight();
+        final int searchHeight = (int) (height * searchFraction);
+        final int fromY = fromTop ? 0 : height - searchHeight;
+        final int[] ink = rowInkCounts(binary, fromY, fromY + searchHeight);
+        if (fromTop) {
+            // search the mirrored profile, index 0 stays the row farthest from the edge
+            for (int i = 0, j = ink.length - 1; i < j; i++, j--) {
+                final int swap = ink[i];
+                ink[i] = ink[j];
+                ink[j] = swap;
+            }
+        }
+
+        final int minInk = (int) Math.ceil(width * minRowDensity);
+        final int maxInk = (int) (width * maxRowDensity);
+        final int minBand = Math.max(1, (int) (height * minBandFraction));
+        final int maxBand = Math.max(minBand, (int) (height * maxBandFraction));
+        // glyph gaps such as the thin strokes of the transit symbol shouldn't split a band
+        final int maxGap = Math.max(1, minBand / 3);
+
+        int bandEnd = -1;
+        int gap = 0;
+        for (int i = ink.length - 1; i >= -1; i--) {
+            boolean inked = i >= 0 && ink[i] >= minInk && ink[i] <= maxInk;
+            if (inked) {
+                if (bandEnd < 0) {
+                    bandEnd = i;
+                }
+                gap = 0;
+            } else if (bandEnd >= 0 && (++gap > maxGap || i < 0)) {
+                int bandStart = i + gap;
+                int bandHeight = bandEnd - bandStart + 1;
+                if (bandHeight >= minBand && bandHeight <= maxBand) {
+                    int bandY = fromTop ? searchHeight - 1 - bandEnd : fromY + bandStart;
+                    return Optional.of(new Rectangle(0, bandY, width, bandHeight));
+                }
+                bandEnd = -1;
+                gap = 0;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Crops a frame to its MICR band, or returns the frame unchanged if no
+     * band was found. The band spans whole rows, so it is copied as one
+     * block.
+     */
+    @Override
+    public PixelBuffer apply(PixelBuffer input, PipelineWorkspace workspace) {
+        return locate(input).map(band -> {
+            final PixelBuffer crop = workspace.spare(input)
+                    .reset(input.getWidth(), band.height, input.getFormat());
+            System.arraycopy(input.getData(), band.y * input.getStride(),
+                    crop.getData(), 0, crop.getLength());
+            return crop;
+        }).orElse(input);
+    }
+
+    private Rectangle withMargin(int bandY, int bandHeight, int width, int height) {
+        int pad = (int) Math.ceil(bandHeight * margin);
+        int top = Math.max(0, bandY - pad);
+        int bottom = Math.min(height, bandY + bandHeight + pad);
+        return new Rectangle(0, top, width, bottom - top);
+    }
+
+    /**
+     * Counts the black pixels of each row in {@code [fromY, toY)} of a
+     * binary frame, where ink is a clear bit.
+     */
+    static int[] rowInkCounts(PixelBuffer binary, int fromY, int toY) {
+        final int width = binary.getWidth();
+        final byte[] data = binary.getData();
+        final int stride = binary.getStride();
+        final int fullBytes = width >> 3;
+        final int tailBits = width & 7;
+        final int tailMask = (0xFF << (8 - tailBits)) & 0xFF;
+
+        final int[] counts = new int[toY - fromY];
+        for (int y = fromY; y < toY; y++) {
+            int offset = y * stride;
+            int white = 0;
+            for (int b = 0; b < fullBytes; b++) {
+                white += Integer.bitCount(data[offset + b] & 0xFF);
+            }
+            if (tailBits != 0) {
+                white += Integer.bitCount(data[offset + fullBytes] & tailMask);
+            }
+            counts[y - fromY] = width - white;
+        }
+        return counts;
+    }
+
+    @Override
+    public String getName() {
+        return "micr-band";
+    }
+}
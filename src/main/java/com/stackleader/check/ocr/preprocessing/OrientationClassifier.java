@@ -0,0 +1,68 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import java.awt.Rectangle;
+import java.util.Optional;
+
+/**
+ * Tells an upright check from an upside-down one before recognition. The
+ * MICR line is the lowest text on a check, and E13B glyphs carry most of
+ * their ink in their lower half, unlike the type on the rest of the check.
+ * The band of text nearest the bottom edge of an upright check is therefore
+ * bottom heavy, the band nearest the top edge of an upside-down check top
+ * heavy.
+ */
+public class OrientationClassifier {
+
+    private final MicrBandLocator locator;
+    private final double saturation;
+
+    /**
+     * @param locator finds the bands of text nearest the edges
+     * @param saturation difference in ink balance, as a fraction of the
+     * band's ink, at which the confidence reaches 1
+     */
+    public OrientationClassifier(MicrBandLocator locator, double saturation) {
+        this.locator = locator;
+        this.saturation = saturation;
+    }
+
+    public OrientationClassifier() {
+        this(new MicrBandLocator(), 0.3);
+    }
+
+    public OrientationEstimate classify(PixelBuffer binary) {
+        if (binary.getFormat() != PixelBuffer.Format.BINARY) {
+            return OrientationEstimate.UNKNOWN;
+        }
+        final double upright = bottomHeaviness(binary, locator.locateBand(binary, false));
+        final double upsideDown = -bottomHeaviness(binary, locator.locateBand(binary, true));
+        final double score = upright - upsideDown;
+        return new OrientationEstimate(
+                score >= 0 ? OrientationEstimate.Orientation.UPRIGHT : OrientationEstimate.Orientation.UPSIDE_DOWN,
+                Math.min(1, Math.abs(score) / saturation));
+    }
+
+    /**
+     * Ink below the middle row of the band minus ink above it, relative to
+     * the ink of the band; 0 without a band.
+     */
+    private static double bottomHeaviness(PixelBuffer binary, Optional<Rectangle> band) {
+        if (band.isEmpty()) {
+            return 0;
+        }
+        final Rectangle rows = band.get();
+        final int[] ink = MicrBandLocator.rowInkCounts(binary, rows.y, rows.y + rows.height);
+        long above = 0;
+        long below = 0;
+        for (int i = 0; i < ink.length; i++) {
+            // the middle row of an odd band counts for neither half
+            final int fromMiddle = 2 * i - (ink.length - 1);
+            if (fromMiddle < 0) {
+                above += ink[i];
+            } else if (fromMiddle > 0) {
+                below += ink[i];
+            }
+        }
+        return above + below == 0 ? 0 : (double) (below - above) / (above + below);
+    }
+}
@@ -0,0 +1,39 @@
+package com.stackleader.check.ocr.preprocessing;
+
+/**
+ * Result of {@link OrientationClassifier#classify(PixelBuffer)}.
+ */
+public final class OrientationEstimate {
+
+    public enum Orientation {
+        UPRIGHT,
+        UPSIDE_DOWN
+    }
+
+    static final OrientationEstimate UNKNOWN = new OrientationEstimate(Orientation.UPRIGHT, 0);
+
+    private final Orientation orientation;
+    private final double confidence;
+
+    OrientationEstimate(Orientation orientation, double confidence) {
+        this.orientation = orientation;
+        this.confidence = confidence;
+    }
+
+    public Orientation getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * @return in {@code [0, 1]}, 0 when neither edge of the frame has a band
+     * that looks like E13B
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    @Override
+    public String toString() {
+        return "OrientationEstimate{orientation=" + orientation + ", confidence=" + confidence + '}';
+    }
+}
@@ -0,0 +1,29 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import de.vorb.tesseract.tools.preprocessing.binarization.Otsu;
+
+/**
+ * Binarizes a grayscale frame with {@link Otsu}'s global threshold, a
+ * histogram and one comparison per pixel. Cheaper than Sauvola but blind to
+ * uneven lighting.
+ */
+public class OtsuStage implements PreprocessingStage {
+
+    private final Otsu otsu = new Otsu();
+
+    @Override
+    public PixelBuffer apply(PixelBuffer input, PipelineWorkspace workspace) {
+        if (input.getFormat() == PixelBuffer.Format.BINARY) {
+            return input;
+        }
+        final PixelBuffer binary = workspace.spare(input)
+                .reset(input.getWidth(), input.getHeight(), PixelBuffer.Format.BINARY);
+        otsu.binarize(input.getData(), input.getWidth(), input.getHeight(), binary.getData());
+        return binary;
+    }
+
+    @Override
+    public String getName() {
+        return "binarization";
+    }
+}
@@ -0,0 +1,44 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import de.vorb.tesseract.tools.preprocessing.binarization.IntegralSauvola;
+
+/**
+ * Buffers one worker reuses for every frame it preprocesses. Stages
+ * alternate between two frame buffers, each writing into the one its input
+ * isn't in. Not thread safe, workspaces are handed out by
+ * {@link PipelineWorkspacePool}.
+ */
+public class PipelineWorkspace {
+
+    private final PixelBuffer first = new PixelBuffer();
+    private final PixelBuffer second = new PixelBuffer();
+    private final IntegralSauvola.Workspace sauvola = new IntegralSauvola.Workspace();
+    private final ResolutionStage.Workspace resolution = new ResolutionStage.Workspace();
+    private PipelineWorkspace auxiliary;
+
+    /**
+     * @return the frame buffer {@code inUse} isn't
+     */
+    public PixelBuffer spare(PixelBuffer inUse) {
+        return inUse == first ? second : first;
+    }
+
+    public IntegralSauvola.Workspace getSauvolaWorkspace() {
+        return sauvola;
+    }
+
+    public ResolutionStage.Workspace getResolutionWorkspace() {
+        return resolution;
+    }
+
+    /**
+     * Second set of buffers for work on a frame of this workspace that runs
+     * alongside the first, created on first use.
+     */
+    public PipelineWorkspace getAuxiliary() {
+        if (auxiliary == null) {
+            auxiliary = new PipelineWorkspace();
+        }
+        return auxiliary;
+    }
+}
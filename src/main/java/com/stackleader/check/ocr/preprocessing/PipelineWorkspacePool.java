@@ -0,0 +1,44 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Bounded pool of {@link PipelineWorkspace}s. Frame buffers are large, so
+ * they are kept per worker slot rather than per request thread.
+ */
+public class PipelineWorkspacePool {
+
+    private final BlockingQueue<PipelineWorkspace> idle;
+
+    public PipelineWorkspacePool(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("pool size must be positive: " + size);
+        }
+        idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            idle.add(new PipelineWorkspace());
+        }
+    }
+
+    /**
+     * Borrows a workspace, blocking until one is idle, and returns it to the
+     * pool once {@code work} completes. Buffers of the workspace must not
+     * escape {@code work}.
+     */
+    public <T> T execute(Function<PipelineWorkspace, T> work) {
+        final PipelineWorkspace workspace;
+        try {
+            workspace = idle.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a preprocessing workspace", ex);
+        }
+        try {
+            return work.apply(workspace);
+        } finally {
+            idle.offer(workspace);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/**
+ * Reusable frame of 8 bpp grayscale or 1 bpp packed binary pixels. The
+ * backing array only grows, so a buffer that is reused for frames of similar
+ * size stops allocating after the first few requests.
+ *
+ * Binary rows are packed most significant bit first and padded to whole
+ * bytes, a set bit is white, the same layout as a {@code TYPE_BYTE_BINARY}
+ * raster.
+ */
+public class PixelBuffer {
+
+    public enum Format {
+        GRAY,
+        BINARY
+    }
+
+    private static final ColorModel GRAY_COLOR_MODEL = new ComponentColorModel(
+            ColorSpace.getInstance(ColorSpace.CS_GRAY), new int[]{8}, false, true,
+            Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+    private static final ColorModel BINARY_COLOR_MODEL = new IndexColorModel(1, 2,
+            new byte[]{0, (byte) 0xFF}, new byte[]{0, (byte) 0xFF}, new byte[]{0, (byte) 0xFF});
+
+    private byte[] data = new byte[0];
+    private Format format = Format.GRAY;
+    private int width;
+    private int height;
+    private int stride;
+
+    /**
+     * Resizes the frame, keeping the backing array if it is large enough.
+     * Pixel values are undefined afterwards.
+     */
+    public PixelBuffer reset(int width, int height, Format format) {
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.stride = format == Format.GRAY ? width : (width + 7) >> 3;
+        if (data.length < stride * height) {
+            data = new byte[stride * height];
+        }
+        return this;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return bytes per row
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    public int getLength() {
+        return stride * height;
+    }
+
+    /**
+     * Whether the pixel of a binary frame is black.
+     */
+    public boolean isInk(int x, int y) {
+        return (data[y * stride + (x >> 3)] & (0x80 >>> (x & 7))) == 0;
+    }
+
+    /**
+     * Wraps the frame in a {@code TYPE_BYTE_GRAY} or
+     * {@code TYPE_BYTE_BINARY} image without copying pixels. The image is
+     * only valid until the buffer is reset.
+     */
+    public BufferedImage asBufferedImage() {
+        final DataBufferByte buffer = new DataBufferByte(data, getLength());
+        final WritableRaster raster = format == Format.GRAY
+                ? Raster.createInterleavedRaster(buffer, width, height, stride, 1, new int[]{0}, null)
+                : Raster.createPackedRaster(buffer, width, height, 1, null);
+        return new BufferedImage(format == Format.GRAY ? GRAY_COLOR_MODEL : BINARY_COLOR_MODEL,
+                raster, false, null);
+    }
+}
@@ -0,0 +1,69 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import de.vorb.tesseract.tools.preprocessing.binarization.BinarizationUtilities;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Ordered {@link PreprocessingStage}s run on the reusable buffers of a
+ * {@link PipelineWorkspace}. The decoded image is converted to grayscale
+ * once, every later stage works on primitive buffers.
+ */
+public class PreprocessingPipeline {
+
+    /**
+     * Name of the conversion of a decoded image to the first frame.
+     */
+    public static final String GRAYSCALE = "grayscale";
+
+    private final List<PreprocessingStage> stages;
+
+    public PreprocessingPipeline(PreprocessingStage... stages) {
+        this.stages = List.of(stages);
+    }
+
+    /**
+     * @return the processed frame, a buffer of {@code workspace}
+     */
+    public PixelBuffer run(BufferedImage image, PipelineWorkspace workspace) {
+        return run(image, workspace, stage -> {
+        });
+    }
+
+    /**
+     * @param stageDone told the name of each stage as it completes, starting
+     * with {@code grayscale} for the conversion of the image
+     * @return the processed frame, a buffer of {@code workspace}
+     */
+    public PixelBuffer run(BufferedImage image, PipelineWorkspace workspace, Consumer<String> stageDone) {
+        final PixelBuffer grayscale = workspace.spare(null)
+                .reset(image.getWidth(), image.getHeight(), PixelBuffer.Format.GRAY);
+        BinarizationUtilities.imageToGrayscale(image, grayscale.asBufferedImage());
+        stageDone.accept(GRAYSCALE);
+        return run(grayscale, workspace, stageDone);
+    }
+
+    /**
+     * @return the processed frame, {@code input} or a buffer of
+     * {@code workspace}
+     */
+    public PixelBuffer run(PixelBuffer input, PipelineWorkspace workspace) {
+        return run(input, workspace, stage -> {
+        });
+    }
+
+    /**
+     * @param stageDone told the name of each stage as it completes
+     * @return the processed frame, {@code input} or a buffer of
+     * {@code workspace}
+     */
+    public PixelBuffer run(PixelBuffer input, PipelineWorkspace workspace, Consumer<String> stageDone) {
+        PixelBuffer frame = input;
+        for (PreprocessingStage stage : stages) {
+            frame = stage.apply(frame, workspace);
+            stageDone.accept(stage.getName());
+        }
+        return frame;
+    }
+}
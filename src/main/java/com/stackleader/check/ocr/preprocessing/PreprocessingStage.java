@@ -0,0 +1,20 @@
+package com.stackleader.check.ocr.preprocessing;
+
+/**
+ * A step of a {@link PreprocessingPipeline}.
+ */
+public interface PreprocessingStage {
+
+    /**
+     * @param input frame to process, not modified
+     * @param workspace source of the output buffer
+     * @return {@code input} itself if the stage has nothing to do, otherwise
+     * the workspace buffer that isn't {@code input}
+     */
+    PixelBuffer apply(PixelBuffer input, PipelineWorkspace workspace);
+
+    /**
+     * @return what the stage is reported as in timings
+     */
+    String getName();
+}
@@ -0,0 +1,181 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the skew of a binary frame as the angle whose horizontal
+ * projection profile has the largest variance. Text lines, the E13B line in
+ * particular, project onto a few sharp peaks only when the projection runs
+ * along them.
+ *
+ * The frame is reduced to ink counts of cells of whole packed bytes, so the
+ * horizontal resolution drops by at least 8 and the vertical resolution only
+ * for tall frames. Angles are searched coarsely over the whole range, then
+ * finely around the best coarse angle.
+ */
+public class ProjectionSkewEstimator {
+
+    private final double maxAngle;
+    private final double coarseStep;
+    private final double fineStep;
+    private final double searchFraction;
+    private final int maxColumns;
+    private final int maxRows;
+
+    /**
+     * @param maxAngle largest skew searched, in degrees either way
+     * @param coarseStep angle step of the full range search
+     * @param fineStep angle step of the search around the best coarse angle
+     * @param searchFraction fraction of the frame height, measured from the
+     * bottom edge, that is projected; the MICR band is at the bottom
+     * @param maxColumns cells per row of the reduced frame, at most
+     * @param maxRows rows of the reduced frame, at most
+     */
+    public ProjectionSkewEstimator(double maxAngle, double coarseStep, double fineStep,
+            double searchFraction, int maxColumns, int maxRows) {
+        this.maxAngle = maxAngle;
+        this.coarseStep = coarseStep;
+        this.fineStep = fineStep;
+        this.searchFraction = searchFraction;
+        this.maxColumns = maxColumns;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Searches the same &plusmn;20 degrees as jdeskew over the whole frame.
+     */
+    public ProjectionSkewEstimator() {
+        this(20, 0.5, 0.05, 1.0, 256, 512);
+    }
+
+    public SkewEstimate estimate(PixelBuffer binary) {
+        if (binary.getFormat() != PixelBuffer.Format.BINARY) {
+            throw new IllegalArgumentException("not a binary frame: " + binary.getFormat());
+        }
+        final Cells cells = reduce(binary);
+        if (cells.count == 0) {
+            return SkewEstimate.NONE;
+        }
+
+        final int coarseSteps = (int) Math.floor(maxAngle / coarseStep);
+        double best = 0;
+        long bestScore = -1;
+        long scoreSum = 0;
+        for (int i = -coarseSteps; i <= coarseSteps; i++) {
+            final long score = score(cells, i * coarseStep);
+            scoreSum += score;
+            if (score > bestScore) {
+                bestScore = score;
+                best = i * coarseStep;
+            }
+        }
+        final double meanScore = (double) scoreSum / (2 * coarseSteps + 1);
+
+        final double coarseBest = best;
+        final int fineSteps = (int) Math.floor(coarseStep / fineStep);
+        for (int i = -fineSteps; i <= fineSteps; i++) {
+            final double angle = coarseBest + i * fineStep;
+            if (i == 0 || Math.abs(angle) > maxAngle) {
+                continue;
+            }
+            final long score = score(cells, angle);
+            if (score > bestScore) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+        return new SkewEstimate(best, 1 - meanScore / bestScore);
+    }
+
+    /**
+     * Sum of the squared bins of the projection along {@code angle}. The
+     * total of the bins doesn't depend on the angle, so this orders angles
+     * like the variance of the profile does.
+     */
+    private static long score(Cells cells, double angle) {
+        final double slope = Math.tan(Math.toRadians(angle)) * cells.cellWidth / cells.cellHeight;
+        final int[] shift = new int[cells.columns];
+        int minShift = 0;
+        int maxShift = 0;
+        for (int c = 0; c < cells.columns; c++) {
+            shift[c] = (int) Math.round((c + 0.5) * slope);
+            minShift = Math.min(minShift, shift[c]);
+            maxShift = Math.max(maxShift, shift[c]);
+        }
+        final int[] bins = new int[cells.rows + maxShift - minShift];
+        for (int i = 0; i < cells.count; i++) {
+            bins[cells.row[i] + maxShift - shift[cells.column[i]]] += cells.ink[i];
+        }
+        long score = 0;
+        for (int bin : bins) {
+            score += (long) bin * bin;
+        }
+        return score;
+    }
+
+    /**
+     * Ink counts of the non-empty cells of the searched part of the frame.
+     */
+    private Cells reduce(PixelBuffer binary) {
+        final int width = binary.getWidth();
+        final int stride = binary.getStride();
+        final byte[] data = binary.getData();
+        final int fromY = binary.getHeight() - (int) (binary.getHeight() * searchFraction);
+        final int height = binary.getHeight() - fromY;
+
+        final int bytesPerCell = Math.max(1, (stride + maxColumns - 1) / maxColumns);
+        final int rowsPerCell = Math.max(1, (height + maxRows - 1) / maxRows);
+        final int columns = (stride + bytesPerCell - 1) / bytesPerCell;
+        final int rows = (height + rowsPerCell - 1) / rowsPerCell;
+        final int tailBits = width & 7;
+        final int tailMask = tailBits == 0 ? 0xFF : (0xFF << (8 - tailBits)) & 0xFF;
+
+        final int[] ink = new int[columns * rows];
+        for (int y = 0; y < height; y++) {
+            final int offset = (fromY + y) * stride;
+            final int cellRow = (y / rowsPerCell) * columns;
+            for (int b = 0; b < stride; b++) {
+                final int mask = b == stride - 1 ? tailMask : 0xFF;
+                ink[cellRow + b / bytesPerCell] += Integer.bitCount(~data[offset + b] & mask);
+            }
+        }
+
+        final Cells cells = new Cells(columns, rows, 8 * bytesPerCell, rowsPerCell);
+        for (int i = 0; i < ink.length; i++) {
+            if (ink[i] != 0) {
+                cells.add(i % columns, i / columns, ink[i]);
+            }
+        }
+        return cells;
+    }
+
+    private static final class Cells {
+        final int columns;
+        final int rows;
+        final int cellWidth;
+        final int cellHeight;
+        int[] column = new int[64];
+        int[] row = new int[64];
+        int[] ink = new int[64];
+        int count;
+
+        Cells(int columns, int rows, int cellWidth, int cellHeight) {
+            this.columns = columns;
+            this.rows = rows;
+            this.cellWidth = cellWidth;
+            this.cellHeight = cellHeight;
+        }
+
+        void add(int c, int r, int weight) {
+            if (count == column.length) {
+                column = Arrays.copyOf(column, count * 2);
+                row = Arrays.copyOf(row, count * 2);
+                ink = Arrays.copyOf(ink, count * 2);
+            }
+            column[count] = c;
+            row[count] = r;
+            ink[count] = weight;
+            count++;
+        }
+    }
+}
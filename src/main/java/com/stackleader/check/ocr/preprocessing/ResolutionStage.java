@@ -0,0 +1,183 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import java.util.Arrays;
+
+/**
+ * Downsamples grayscale frames captured at more than the target resolution.
+ * The resolution is estimated from the frame width, taken to span a check of
+ * {@code checkWidthInches}. Frames of a narrower check are estimated low and
+ * reduced less than they could be. Frames showing more than
+ * {@code checkWidthInches}, like phone photos with a wide margin around the
+ * check, are estimated high and end up below the target; with the width of
+ * a business check, the widest common one, that takes a frame wider than
+ * the check itself. Each output pixel is the average of the source area it covers,
+ * including partially covered pixels, so thin strokes fade rather than drop
+ * out as with point sampling.
+ *
+ * Frames already within 10% of the target, and binary frames, are passed
+ * through.
+ */
+public class ResolutionStage implements PreprocessingStage {
+
+    /**
+     * Width of a business check, personal checks are 6 inches wide.
+     */
+    public static final double BUSINESS_CHECK_INCHES = 8.5;
+
+    private static final double MIN_REDUCTION = 0.9;
+
+    private final int targetDpi;
+    private final double checkWidthInches;
+
+    /**
+     * @param targetDpi resolution frames are reduced to
+     * @param checkWidthInches physical width a frame is assumed to show,
+     * frames of wider checks are reduced below {@code targetDpi}
+     */
+    public ResolutionStage(int targetDpi, double checkWidthInches) {
+        if (targetDpi <= 0 || checkWidthInches <= 0) {
+            throw new IllegalArgumentException("targetDpi and checkWidthInches must be positive");
+        }
+        this.targetDpi = targetDpi;
+        this.checkWidthInches = checkWidthInches;
+    }
+
+    /**
+     * @return the resolution a frame {@code width} pixels wide is taken to
+     * have
+     */
+    public double estimateDpi(int width) {
+        return width / checkWidthInches;
+    }
+
+    @Override
+    public PixelBuffer apply(PixelBuffer input, PipelineWorkspace workspace) {
+        if (input.getFormat() == PixelBuffer.Format.BINARY) {
+            return input;
+        }
+        final double scale = targetDpi / estimateDpi(input.getWidth());
+        if (scale > MIN_REDUCTION) {
+            return input;
+        }
+        final int width = Math.max(1, (int) Math.round(input.getWidth() * scale));
+        final int height = Math.max(1, (int) Math.round(input.getHeight() * scale));
+        return areaAverage(input, workspace.spare(input).reset(width, height, PixelBuffer.Format.GRAY),
+                workspace.getResolutionWorkspace());
+    }
+
+    @Override
+    public String getName() {
+        return "resolution";
+    }
+
+    /**
+     * Reduces {@code source} to the size of {@code target}, reading each
+     * source row once: it is averaged horizontally and added to the output
+     * rows it overlaps, weighted by the overlap.
+     *
+     * @return {@code target}
+     */
+    static PixelBuffer areaAverage(PixelBuffer source, PixelBuffer target, Workspace workspace) {
+        final int sourceWidth = source.getWidth();
+        final int sourceHeight = source.getHeight();
+        final int width = target.getWidth();
+        final int height = target.getHeight();
+        final double xSpan = (double) sourceWidth / width;
+        final double ySpan = (double) sourceHeight / height;
+        workspace.prepare(width, sourceWidth, xSpan);
+        final int[] first = workspace.first;
+        final int[] last = workspace.last;
+        final float[] firstWeight = workspace.firstWeight;
+        final float[] lastWeight = workspace.lastWeight;
+        final float[] row = workspace.row;
+        final float[] sums = workspace.sums;
+        Arrays.fill(sums, 0, width, 0f);
+
+        final byte[] in = source.getData();
+        final byte[] out = target.getData();
+        final int sourceStride = source.getStride();
+        final float xNorm = (float) (1 / xSpan);
+        final float yNorm = (float) (1 / ySpan);
+        int y = 0;
+        double rowEnd = ySpan;
+        for (int sy = 0; sy < sourceHeight && y < height; sy++) {
+            final int offset = sy * sourceStride;
+            for (int x = 0; x < width; x++) {
+                final int from = first[x];
+                final int to = last[x];
+                float sum = firstWeight[x] * (in[offset + from] & 0xFF);
+                for (int sx = from + 1; sx < to; sx++) {
+                    sum += in[offset + sx] & 0xFF;
+                }
+                if (to > from) {
+                    sum += lastWeight[x] * (in[offset + to] & 0xFF);
+                }
+                row[x] = sum * xNorm;
+            }
+            // the source row spans [sy, sy + 1), output row y spans [rowEnd - ySpan, rowEnd)
+            double top = sy;
+            while (y < height) {
+                final double bottom = Math.min(sy + 1, rowEnd);
+                final float weight = (float) (bottom - top);
+                for (int x = 0; x < width; x++) {
+                    sums[x] += weight * row[x];
+                }
+                if (rowEnd > sy + 1 + 1e-9 && sy + 1 < sourceHeight) {
+                    break;
+                }
+                final int outOffset = y * width;
+                for (int x = 0; x < width; x++) {
+                    out[outOffset + x] = (byte) Math.min(255, Math.round(sums[x] * yNorm));
+                    sums[x] = 0;
+                }
+                y++;
+                top = bottom;
+                rowEnd = (y + 1) * ySpan;
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Column weights and row sums reused across frames.
+     */
+    public static final class Workspace {
+
+        private int[] first = new int[0];
+        private int[] last = new int[0];
+        private float[] firstWeight = new float[0];
+        private float[] lastWeight = new float[0];
+        private float[] row = new float[0];
+        private float[] sums = new float[0];
+
+        /**
+         * Computes, for every output column, the source columns it covers
+         * and the coverage of the partial ones at either end.
+         */
+        void prepare(int width, int sourceWidth, double xSpan) {
+            if (first.length < width) {
+                first = new int[width];
+                last = new int[width];
+                firstWeight = new float[width];
+                lastWeight = new float[width];
+                row = new float[width];
+                sums = new float[width];
+            }
+            for (int x = 0; x < width; x++) {
+                final double start = x * xSpan;
+                final double end = Math.min(sourceWidth, (x + 1) * xSpan);
+                final int from = (int) start;
+                final int to = Math.max(from, Math.min(sourceWidth - 1, (int) Math.ceil(end) - 1));
+                first[x] = from;
+                last[x] = to;
+                if (to == from) {
+                    firstWeight[x] = (float) (end - start);
+                    lastWeight[x] = 0;
+                } else {
+                    firstWeight[x] = (float) (from + 1 - start);
+                    lastWeight[x] = (float) (end - to);
+                }
+            }
+        }
+    }
+}
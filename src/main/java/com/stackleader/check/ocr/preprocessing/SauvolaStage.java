@@ -0,0 +1,32 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import de.vorb.tesseract.tools.preprocessing.binarization.IntegralSauvola;
+
+/**
+ * Binarizes a grayscale frame with {@link IntegralSauvola}.
+ */
+public class SauvolaStage implements PreprocessingStage {
+
+    private final IntegralSauvola sauvola;
+
+    public SauvolaStage(IntegralSauvola sauvola) {
+        this.sauvola = sauvola;
+    }
+
+    @Override
+    public PixelBuffer apply(PixelBuffer input, PipelineWorkspace workspace) {
+        if (input.getFormat() == PixelBuffer.Format.BINARY) {
+            return input;
+        }
+        final PixelBuffer binary = workspace.spare(input)
+                .reset(input.getWidth(), input.getHeight(), PixelBuffer.Format.BINARY);
+        sauvola.binarize(input.getData(), input.getWidth(), input.getHeight(),
+                binary.getData(), workspace.getSauvolaWorkspace());
+        return binary;
+    }
+
+    @Override
+    public String getName() {
+        return "binarization";
+    }
+}
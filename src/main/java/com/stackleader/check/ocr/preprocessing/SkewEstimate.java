@@ -0,0 +1,39 @@
+package com.stackleader.check.ocr.preprocessing;
+
+/**
+ * Result of {@link ProjectionSkewEstimator#estimate(PixelBuffer)}.
+ */
+public final class SkewEstimate {
+
+    static final SkewEstimate NONE = new SkewEstimate(0, 0);
+
+    private final double angle;
+    private final double confidence;
+
+    SkewEstimate(double angle, double confidence) {
+        this.angle = angle;
+        this.confidence = confidence;
+    }
+
+    /**
+     * @return skew in degrees, positive when text lines fall to the right,
+     * same sign as jdeskew's {@code ImageDeskew.getSkewAngle()}
+     */
+    public double getAngle() {
+        return angle;
+    }
+
+    /**
+     * @return how much the best projection stands out from the average over
+     * all angles searched, in {@code [0, 1]}; 0 for a frame without ink or
+     * without line structure
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    @Override
+    public String toString() {
+        return "SkewEstimate{angle=" + angle + ", confidence=" + confidence + '}';
+    }
+}
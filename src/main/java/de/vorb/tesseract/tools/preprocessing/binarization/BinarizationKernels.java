@@ -0,0 +1,75 @@
+package de.vorb.tesseract.tools.preprocessing.binarization;
+
+/**
+ * Data-parallel inner loops of the binarization methods. All kernels read
+ * unsigned 8 bit grayscale pixels and write 1 bit per pixel, most significant
+ * bit first, where a set bit is white (foreground in the output of
+ * {@link Sauvola}) as in a {@code TYPE_BYTE_BINARY} raster.
+ *
+ * A kernel implementation built on {@code jdk.incubator.vector} is chosen when
+ * the module is present in the boot layer (run with
+ * {@code --add-modules jdk.incubator.vector}), otherwise the scalar
+ * implementation is used. The system property {@code binarization.kernels}
+ * set to {@code scalar} forces the scalar implementation.
+ */
+public abstract class BinarizationKernels {
+
+    static final String KERNELS_PROPERTY = "binarization.kernels";
+    static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final class Holder {
+        static final BinarizationKernels INSTANCE = select();
+    }
+
+    public static BinarizationKernels getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    static BinarizationKernels select() {
+        if ("scalar".equalsIgnoreCase(System.getProperty(KERNELS_PROPERTY))
+                || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return new ScalarBinarizationKernels();
+        }
+        try {
+            return (BinarizationKernels) Class.forName(
+                    "de.vorb.tesseract.tools.preprocessing.binarization.VectorBinarizationKernels")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarBinarizationKernels();
+        }
+    }
+
+    /**
+     * @return short name of the implementation, for logging
+     */
+    public abstract String getName();
+
+    /**
+     * Adds the values of {@code length} pixels to a 256 bin histogram.
+     */
+    public abstract void histogram(byte[] pixels, int offset, int length,
+            int[] histogram);
+
+    /**
+     * Packs {@code pixel > threshold} for {@code length} pixels.
+     *
+     * @param threshold threshold in {@code [-1, 255]}
+     * @param packedOffset byte offset of the first output pixel
+     */
+    public abstract void threshold(byte[] pixels, int pixelOffset, int length,
+            int threshold, byte[] packed, int packedOffset);
+
+    /**
+     * Packs Sauvola's rule
+     * {@code pixel > mean * (1 + k * (sqrt(variance) / R - 1))} for
+     * {@code length} pixels, evaluated in double precision exactly like
+     * {@link Sauvola}.
+     *
+     * @param statsOffset offset of the first pixel in {@code mean} and
+     * {@code variance}
+     * @param packedOffset byte offset of the first output pixel
+     */
+    public abstract void sauvola(byte[] pixels, int pixelOffset,
+            float[] mean, float[] variance, int statsOffset, int length,
+            float k, float R, byte[] packed, int packedOffset);
+}
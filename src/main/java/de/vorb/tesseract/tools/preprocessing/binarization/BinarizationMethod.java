@@ -2,7 +2,8 @@ package de.vorb.tesseract.tools.preprocessing.binarization;
 
 public enum BinarizationMethod {
     OTSU("Otsu"),
-    SAUVOLA("Sauvola");
+    SAUVOLA("Sauvola"),
+    INTEGRAL_SAUVOLA("Integral Sauvola");
 
     private String name;
 
@@ -1,5 +1,6 @@
 package de.vorb.tesseract.tools.preprocessing.binarization;
 
+import java.awt.Graphics2D;
 import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorConvertOp;
@@ -36,4 +37,34 @@ public final class BinarizationUtilities {
 
         return grayscale;
     }
+
+    /**
+     * Converts an image to grayscale like {@link #imageToGrayscale(BufferedImage)},
+     * but into an existing {@code TYPE_BYTE_GRAY} image of the same size.
+     * Binary images are expanded to black and white.
+     */
+    public static void imageToGrayscale(BufferedImage image, BufferedImage grayscale) {
+        switch (image.getType()) {
+            case BufferedImage.TYPE_BYTE_BINARY:
+                final Graphics2D g = grayscale.createGraphics();
+                try {
+                    g.drawImage(image, 0, 0, null);
+                } finally {
+                    g.dispose();
+                }
+                break;
+            case BufferedImage.TYPE_BYTE_GRAY:
+                grayscale.getRaster().setRect(image.getRaster());
+                break;
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_BYTE_INDEXED:
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                RGB_TO_GRAYSCALE.filter(image, grayscale);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "illegal color space: " + image.getColorModel().getColorSpace().getType());
+        }
+    }
 }
@@ -0,0 +1,273 @@
+package de.vorb.tesseract.tools.preprocessing.binarization;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sauvola's method computed from summed-area tables of the pixel values and
+ * their squares.
+ *
+ * The {@link Window#DISK} window reproduces the circular kernel of ImageJ's
+ * {@code RankFilters} that {@link Sauvola} uses, including its edge
+ * replication and floating point evaluation, so the output is bit-for-bit
+ * identical. The disk is split into horizontal bands of constant width, each
+ * costing four table lookups. {@link Window#SQUARE} uses the
+ * {@code (2r+1)x(2r+1)} window of the original paper, which is a single band
+ * and costs the same for every radius.
+ *
+ * Only the {@code 2r+2} table rows the current output row needs are kept, and
+ * the result is written directly into the packed bytes of the binary raster
+ * by {@link BinarizationKernels#sauvola}.
+ */
+public class IntegralSauvola implements Binarization {
+
+    public enum Window {
+        DISK,
+        SQUARE
+    }
+
+    /**
+     * The window sum of squares is kept in 32 bits, which holds for up to
+     * this many points.
+     */
+    private static final long MAX_KERNEL_POINTS = 0xFFFFFFFFL / (255 * 255);
+
+    private final int radius;
+    private final float k;
+    private final float R;
+    private final Window window;
+
+    private final int kernelRadius;
+    private final int kernelPoints;
+    private final int[] bandTop;
+    private final int[] bandBottom;
+    private final int[] bandHalfWidth;
+
+    /**
+     * @param radius window radius
+     * @param k sensitivity
+     * @param R dynamic range of the standard deviation
+     * @param window window shape
+     * @see <a
+     * href="http://www.ee.oulu.fi/research/mvmp/mvg/files/pdf/pdf_24.pdf">Sauvola
+     * et al. 2000 - Adaptive document image binarization</a>
+     */
+    public IntegralSauvola(int radius, float k, float R, Window window) {
+        this.radius = radius;
+        this.k = k;
+        this.R = R;
+        this.window = window;
+
+        final int[] lineRadii = window == Window.DISK
+                ? diskLineRadii(radius)
+                : squareLineRadii(radius);
+        kernelRadius = lineRadii.length / 2;
+        int points = 0;
+        for (int halfWidth : lineRadii) {
+            points += 2 * halfWidth + 1;
+        }
+        if (points > MAX_KERNEL_POINTS) {
+            throw new IllegalArgumentException("radius too large: " + radius);
+        }
+        kernelPoints = points;
+
+        // merge consecutive kernel lines of equal width into bands
+        final List<int[]> bands = new ArrayList<>();
+        for (int dy = -kernelRadius; dy <= kernelRadius; dy++) {
+            final int halfWidth = lineRadii[dy + kernelRadius];
+            final int[] last = bands.isEmpty() ? null : bands.get(bands.size() - 1);
+            if (last != null && last[2] == halfWidth) {
+                last[1] = dy;
+            } else {
+                bands.add(new int[]{dy, dy, halfWidth});
+            }
+        }
+        bandTop = bands.stream().mapToInt(band -> band[0]).toArray();
+        bandBottom = bands.stream().mapToInt(band -> band[1]).toArray();
+        bandHalfWidth = bands.stream().mapToInt(band -> band[2]).toArray();
+    }
+
+    public IntegralSauvola(int radius, float k, float R) {
+        this(radius, k, R, Window.DISK);
+    }
+
+    public IntegralSauvola(int radius) {
+        this(radius, 0.5F, 128F);
+    }
+
+    public IntegralSauvola() {
+        this(15);
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public Window getWindow() {
+        return window;
+    }
+
+    @Override
+    public BufferedImage binarize(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_BINARY) {
+            return image;
+        }
+
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+
+        final BufferedImage grayscale =
+                BinarizationUtilities.imageToGrayscale(image);
+        final byte[] pxs = ((DataBufferByte) grayscale.getRaster()
+                .getDataBuffer()).getData();
+
+        final BufferedImage result = new BufferedImage(width, height,
+                BufferedImage.TYPE_BYTE_BINARY);
+        final byte[] out = ((DataBufferByte) result.getRaster()
+                .getDataBuffer()).getData();
+
+        binarize(pxs, width, height, out, new Workspace());
+
+        return result;
+    }
+
+    /**
+     * Binarizes raw 8 bit grayscale pixels into packed 1 bpp rows.
+     *
+     * @param pxs {@code width * height} grayscale pixels
+     * @param out receives {@code ((width + 7) / 8) * height} bytes
+     * @param workspace scratch arrays, reused across calls
+     */
+    public void binarize(byte[] pxs, int width, int height, byte[] out,
+            Workspace workspace) {
+        final int outStride = (width + 7) >> 3;
+
+        // table row j holds the sums of padded rows [0, j), padded by
+        // kernelRadius replicated edge pixels on every side
+        final int paddedWidth = width + 2 * kernelRadius;
+        final int tableWidth = paddedWidth + 1;
+        final int tableRows = 2 * kernelRadius + 2;
+        workspace.ensureCapacity(tableRows * tableWidth, width);
+        final int[] sum = workspace.sum;
+        final int[] sum2 = workspace.sum2;
+        final float[] mean = workspace.mean;
+        final float[] variance = workspace.variance;
+        Arrays.fill(sum, 0, tableWidth, 0);
+        Arrays.fill(sum2, 0, tableWidth, 0);
+        int rowsDone = 1;
+
+        final int bands = bandTop.length;
+        final int[] topOffset = new int[bands];
+        final int[] bottomOffset = new int[bands];
+        final double n = kernelPoints;
+        final BinarizationKernels kernels = BinarizationKernels.getInstance();
+
+        for (int y = 0; y < height; y++) {
+            for (final int needed = y + 2 * kernelRadius + 1; rowsDone <= needed; rowsDone++) {
+                final int sourceY = clamp(rowsDone - 1 - kernelRadius, height);
+                appendTableRow(pxs, sourceY * width, width, sum, sum2,
+                        ((rowsDone - 1) % tableRows) * tableWidth,
+                        (rowsDone % tableRows) * tableWidth);
+            }
+            for (int b = 0; b < bands; b++) {
+                topOffset[b] = ((y + kernelRadius + bandTop[b]) % tableRows) * tableWidth;
+                bottomOffset[b] = ((y + kernelRadius + bandBottom[b] + 1) % tableRows) * tableWidth;
+            }
+
+            for (int x = 0; x < width; x++) {
+                int s = 0;
+                int s2 = 0;
+                for (int b = 0; b < bands; b++) {
+                    final int left = x + kernelRadius - bandHalfWidth[b];
+                    final int right = x + kernelRadius + bandHalfWidth[b] + 1;
+                    final int top = topOffset[b];
+                    final int bottom = bottomOffset[b];
+                    s += sum[bottom + right] - sum[bottom + left] - sum[top + right] + sum[top + left];
+                    s2 += sum2[bottom + right] - sum2[bottom + left] - sum2[top + right] + sum2[top + left];
+                }
+
+                // same float/double evaluation as RankFilters
+                final double windowSum = s;
+                final double windowSum2 = Integer.toUnsignedLong(s2);
+                mean[x] = (float) (windowSum / n);
+                final float var = (float) ((windowSum2 - windowSum * windowSum / n) / n);
+                variance[x] = var < 0.0f ? 0.0f : var;
+            }
+            kernels.sauvola(pxs, y * width, mean, variance, 0, width, k, R,
+                    out, y * outStride);
+        }
+    }
+
+    private void appendTableRow(byte[] pxs, int rowOffset, int width,
+            int[] sum, int[] sum2, int previous, int current) {
+        int rowSum = 0;
+        int rowSum2 = 0;
+        sum[current] = 0;
+        sum2[current] = 0;
+        for (int q = 0, padded = width + 2 * kernelRadius; q < padded; q++) {
+            final int v = pxs[rowOffset + clamp(q - kernelRadius, width)] & 0xFF;
+            rowSum += v;
+            rowSum2 += v * v;
+            // both tables may overflow, window sums are exact modulo 2^32
+            sum[current + q + 1] = sum[previous + q + 1] + rowSum;
+            sum2[current + q + 1] = sum2[previous + q + 1] + rowSum2;
+        }
+    }
+
+    private static int clamp(int i, int length) {
+        return i < 0 ? 0 : (i >= length ? length - 1 : i);
+    }
+
+    /**
+     * Half widths of the kernel lines of ImageJ's circular kernel, see
+     * {@code RankFilters.makeLineRadii}.
+     */
+    static int[] diskLineRadii(double radius) {
+        if (radius >= 1.5 && radius < 1.75) {
+            radius = 1.75;
+        } else if (radius >= 2.5 && radius < 2.85) {
+            radius = 2.85;
+        }
+        final int r2 = (int) (radius * radius) + 1;
+        final int kRadius = (int) Math.sqrt(r2 + 1e-10);
+        final int[] lineRadii = new int[2 * kRadius + 1];
+        lineRadii[kRadius] = kRadius;
+        for (int y = 1; y <= kRadius; y++) {
+            final int dx = (int) Math.sqrt(r2 - y * y + 1e-10);
+            lineRadii[kRadius - y] = dx;
+            lineRadii[kRadius + y] = dx;
+        }
+        return lineRadii;
+    }
+
+    private static int[] squareLineRadii(int radius) {
+        final int[] lineRadii = new int[2 * radius + 1];
+        Arrays.fill(lineRadii, radius);
+        return lineRadii;
+    }
+
+    /**
+     * Scratch arrays of {@link #binarize(byte[], int, int, byte[], Workspace)},
+     * grown on demand. Not thread safe.
+     */
+    public static final class Workspace {
+        private int[] sum = new int[0];
+        private int[] sum2 = new int[0];
+        private float[] mean = new float[0];
+        private float[] variance = new float[0];
+
+        private void ensureCapacity(int tableSize, int width) {
+            if (sum.length < tableSize) {
+                sum = new int[tableSize];
+                sum2 = new int[tableSize];
+            }
+            if (mean.length < width) {
+                mean = new float[width];
+                variance = new float[width];
+            }
+        }
+    }
+}
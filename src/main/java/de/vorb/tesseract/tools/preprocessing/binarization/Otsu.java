@@ -1,8 +1,14 @@
 package de.vorb.tesseract.tools.preprocessing.binarization;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.stream.IntStream;
 
 public class Otsu implements Binarization {
+    private static final int[] GRAY_TO_RGB = grayToRGB();
+    private static final int[] IDENTITY =
+            IntStream.range(0, 256).toArray();
+
     public Otsu() { // Otsu doesn't take parameters
     }
 
@@ -14,46 +20,94 @@ public class Otsu implements Binarization {
         final BufferedImage grayscale =
                 BinarizationUtilities.imageToGrayscale(image);
 
-        final int[] histogram = getHistogram(grayscale);
+        // thresholds are computed on the sRGB value getRGB reports for a
+        // pixel, kernels work on the raw samples
+        final byte[] pxs;
+        final int[] toRGB;
+        if (grayscale.getType() == BufferedImage.TYPE_BYTE_GRAY
+                && grayscale.getRaster().getParent() == null) {
+            pxs = ((DataBufferByte) grayscale.getRaster().getDataBuffer())
+                    .getData();
+            toRGB = GRAY_TO_RGB;
+        } else {
+            pxs = new byte[width * height];
+            for (int y = 0, i = 0; y < height; y++) {
+                for (int x = 0; x < width; x++, i++) {
+                    pxs[i] = (byte) grayscale.getRGB(x, y);
+                }
+            }
+            toRGB = IDENTITY;
+        }
+
+        final BinarizationKernels kernels = BinarizationKernels.getInstance();
+        final int[] histogram = getHistogram(kernels, pxs, toRGB);
         final int threshold = getOtsuThreshold(histogram, width, height);
 
+        // toRGB is monotonic, so rgb > threshold iff sample > sampleThreshold
+        int sampleThreshold = -1;
+        while (sampleThreshold < 255 && toRGB[sampleThreshold + 1] <= threshold) {
+            sampleThreshold++;
+        }
+
         final BufferedImage result = new BufferedImage(width, height,
                 BufferedImage.TYPE_BYTE_BINARY);
-
+        final byte[] out = ((DataBufferByte) result.getRaster()
+                .getDataBuffer()).getData();
+        final int outStride = (width + 7) >> 3;
         for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                final int value = grayscale.getRGB(x, y) & 0xFF;
-
-                if (value > threshold) {
-                    result.setRGB(x, y, 0xFFFFFFFF);
-                } else {
-                    result.setRGB(x, y, 0xFF000000);
-                }
-            }
+            kernels.threshold(pxs, y * width, width, sampleThreshold, out,
+                    y * outStride);
         }
 
         return result;
     }
 
-    private static int[] getHistogram(BufferedImage grayscale) {
-        final int width = grayscale.getWidth();
-        final int height = grayscale.getHeight();
-
+    /**
+     * Binarizes 8 bpp samples into packed 1 bpp rows. The threshold is found
+     * on the samples themselves, not on their sRGB values.
+     *
+     * @param out {@code ((width + 7) >> 3) * height} bytes
+     */
+    public void binarize(byte[] pxs, int width, int height, byte[] out) {
+        final BinarizationKernels kernels = BinarizationKernels.getInstance();
         final int[] histogram = new int[256];
+        kernels.histogram(pxs, 0, width * height, histogram);
+        final int threshold = getOtsuThreshold(histogram, width, height);
+        final int outStride = (width + 7) >> 3;
+        for (int y = 0; y < height; y++) {
+            kernels.threshold(pxs, y * width, width, threshold, out,
+                    y * outStride);
+        }
+    }
 
-        for (int i = 0; i < histogram.length; i++)
-            histogram[i] = 0;
+    private static int[] getHistogram(BinarizationKernels kernels, byte[] pxs,
+            int[] toRGB) {
+        final int[] samples = new int[256];
+        kernels.histogram(pxs, 0, pxs.length, samples);
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                final int value = grayscale.getRGB(x, y) & 0xFF;
-                histogram[value]++;
-            }
+        final int[] histogram = new int[256];
+        for (int i = 0; i < samples.length; i++) {
+            histogram[toRGB[i]] += samples[i];
         }
 
         return histogram;
     }
 
+    private static int[] grayToRGB() {
+        final BufferedImage ramp = new BufferedImage(256, 1,
+                BufferedImage.TYPE_BYTE_GRAY);
+        final byte[] pxs = ((DataBufferByte) ramp.getRaster().getDataBuffer())
+                .getData();
+        final int[] lut = new int[256];
+        for (int i = 0; i < 256; i++) {
+            pxs[i] = (byte) i;
+        }
+        for (int i = 0; i < 256; i++) {
+            lut[i] = ramp.getRGB(i, 0) & 0xFF;
+        }
+        return lut;
+    }
+
     private static int getOtsuThreshold(int[] histogram, int width, int height) {
         final int total = width * height;
 
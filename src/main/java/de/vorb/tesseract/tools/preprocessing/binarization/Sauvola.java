@@ -12,9 +12,6 @@ import java.awt.image.DataBufferByte;
  * @author Paul Vorbach
  */
 public class Sauvola implements Binarization {
-    private static final int FOREGROUND = 0xFFFFFFFF;
-    private static final int BACKGROUND = 0xFF000000;
-
     private final int radius;
     private final float k;
     private final float R;
@@ -79,16 +76,13 @@ public class Sauvola implements Binarization {
         rankFilters.rank(var, radius, RankFilters.VARIANCE);
 
         // binarization
+        final byte[] out = ((DataBufferByte) result.getRaster()
+                .getDataBuffer()).getData();
+        final int outStride = (width + 7) >> 3;
+        final BinarizationKernels kernels = BinarizationKernels.getInstance();
         for (int y = 0, offset = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                final int i = offset + x;
-                if ((pxs[i] & 0xFF) > meanPxs[i]
-                        * (1.0 + k * ((Math.sqrt(varPxs[i]) / R) - 1.0))) {
-                    result.setRGB(x, y, FOREGROUND);
-                } else {
-                    result.setRGB(x, y, BACKGROUND);
-                }
-            }
+            kernels.sauvola(pxs, offset, meanPxs, varPxs, offset, width, k, R,
+                    out, y * outStride);
             offset += width;
         }
 
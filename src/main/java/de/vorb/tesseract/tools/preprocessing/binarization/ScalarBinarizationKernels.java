@@ -0,0 +1,79 @@
+package de.vorb.tesseract.tools.preprocessing.binarization;
+
+/**
+ * Plain Java kernels, used when the vector API is not available.
+ */
+class ScalarBinarizationKernels extends BinarizationKernels {
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public void histogram(byte[] pixels, int offset, int length,
+            int[] histogram) {
+        // interleaved sub-histograms avoid stalling on runs of equal pixels
+        final int[] h1 = new int[256];
+        final int[] h2 = new int[256];
+        final int[] h3 = new int[256];
+        final int end = offset + length;
+        int i = offset;
+        for (; i + 3 < end; i += 4) {
+            histogram[pixels[i] & 0xFF]++;
+            h1[pixels[i + 1] & 0xFF]++;
+            h2[pixels[i + 2] & 0xFF]++;
+            h3[pixels[i + 3] & 0xFF]++;
+        }
+        for (; i < end; i++) {
+            histogram[pixels[i] & 0xFF]++;
+        }
+        for (int v = 0; v < 256; v++) {
+            histogram[v] += h1[v] + h2[v] + h3[v];
+        }
+    }
+
+    @Override
+    public void threshold(byte[] pixels, int pixelOffset, int length,
+            int threshold, byte[] packed, int packedOffset) {
+        int bits = 0;
+        for (int x = 0; x < length; x++) {
+            bits <<= 1;
+            if ((pixels[pixelOffset + x] & 0xFF) > threshold) {
+                bits |= 1;
+            }
+            if ((x & 7) == 7) {
+                packed[packedOffset + (x >> 3)] = (byte) bits;
+                bits = 0;
+            }
+        }
+        flushTail(bits, length, packed, packedOffset);
+    }
+
+    @Override
+    public void sauvola(byte[] pixels, int pixelOffset,
+            float[] mean, float[] variance, int statsOffset, int length,
+            float k, float R, byte[] packed, int packedOffset) {
+        int bits = 0;
+        for (int x = 0; x < length; x++) {
+            bits <<= 1;
+            if ((pixels[pixelOffset + x] & 0xFF) > mean[statsOffset + x]
+                    * (1.0 + k * ((Math.sqrt(variance[statsOffset + x]) / R) - 1.0))) {
+                bits |= 1;
+            }
+            if ((x & 7) == 7) {
+                packed[packedOffset + (x >> 3)] = (byte) bits;
+                bits = 0;
+            }
+        }
+        flushTail(bits, length, packed, packedOffset);
+    }
+
+    private static void flushTail(int bits, int length, byte[] packed,
+            int packedOffset) {
+        final int tail = length & 7;
+        if (tail != 0) {
+            packed[packedOffset + (length >> 3)] = (byte) (bits << (8 - tail));
+        }
+    }
+}
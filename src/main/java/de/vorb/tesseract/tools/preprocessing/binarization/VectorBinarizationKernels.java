@@ -0,0 +1,127 @@
+package de.vorb.tesseract.tools.preprocessing.binarization;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels built on {@code jdk.incubator.vector}. Only loaded reflectively by
+ * {@link BinarizationKernels#select()} once the module is known to be present.
+ *
+ * The Sauvola rule is evaluated with the same sequence of IEEE double
+ * operations as the scalar kernel, so both produce identical bits. The vector
+ * API has no scatter-add, so the histogram is inherited from the scalar
+ * kernel.
+ */
+class VectorBinarizationKernels extends ScalarBinarizationKernels {
+
+    /**
+     * 8 lanes, one compare yields one packed output byte.
+     */
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+
+    /**
+     * At most 8 double lanes, so one 8 pixel output byte covers a whole
+     * number of vectors.
+     */
+    private static final VectorSpecies<Double> DOUBLES =
+            DoubleVector.SPECIES_PREFERRED.length() > 8
+            ? DoubleVector.SPECIES_512
+            : DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = DOUBLES.length();
+    private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(
+            float.class, VectorShape.forBitSize(Float.SIZE * LANES));
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(
+            int.class, VectorShape.forBitSize(Integer.SIZE * LANES));
+    private static final VectorSpecies<Long> LONGS = VectorSpecies.of(
+            long.class, DOUBLES.vectorShape());
+
+    private static final ByteVector ZERO_BYTES = ByteVector.zero(BYTES);
+    private static final ByteVector BYTE_WEIGHTS = ByteVector.fromArray(BYTES,
+            new byte[]{(byte) 0x80, 0x40, 0x20, 0x10, 0x08, 0x04, 0x02, 0x01}, 0);
+    private static final LongVector ZERO_LONGS = LongVector.zero(LONGS);
+    private static final LongVector[] LONG_WEIGHTS = longWeights();
+
+    @Override
+    public String getName() {
+        return "vector (" + DOUBLES.vectorBitSize() + " bit)";
+    }
+
+    @Override
+    public void threshold(byte[] pixels, int pixelOffset, int length,
+            int threshold, byte[] packed, int packedOffset) {
+        if (threshold < 0 || threshold > 254) {
+            super.threshold(pixels, pixelOffset, length, threshold, packed, packedOffset);
+            return;
+        }
+        final byte t = (byte) threshold;
+        int x = 0;
+        for (; x + 8 <= length; x += 8) {
+            packed[packedOffset + (x >> 3)] = ZERO_BYTES.blend(BYTE_WEIGHTS,
+                    ByteVector.fromArray(BYTES, pixels, pixelOffset + x)
+                            .compare(VectorOperators.UNSIGNED_GT, t))
+                    .reduceLanes(VectorOperators.OR);
+        }
+        super.threshold(pixels, pixelOffset + x, length - x, threshold,
+                packed, packedOffset + (x >> 3));
+    }
+
+    @Override
+    public void sauvola(byte[] pixels, int pixelOffset,
+            float[] mean, float[] variance, int statsOffset, int length,
+            float k, float R, byte[] packed, int packedOffset) {
+        final double dk = k;
+        final double dR = R;
+        int x = 0;
+        for (; x + 8 <= length; x += 8) {
+            final ByteVector block = ByteVector.fromArray(ByteVector.SPECIES_64,
+                    pixels, pixelOffset + x);
+            long bits = 0;
+            for (int part = 0; part < 8 / LANES; part++) {
+                final int i = statsOffset + x + part * LANES;
+                // ZERO_EXTEND_B2I is broken on JDK 17, mask the sign extension instead
+                final DoubleVector value = ((IntVector) block
+                        .convertShape(VectorOperators.B2I, INTS, part))
+                        .and(0xFF)
+                        .convertShape(VectorOperators.I2D, DOUBLES, 0)
+                        .reinterpretAsDoubles();
+                final DoubleVector m = FloatVector.fromArray(FLOATS, mean, i)
+                        .convertShape(VectorOperators.F2D, DOUBLES, 0)
+                        .reinterpretAsDoubles();
+                final DoubleVector deviation = FloatVector.fromArray(FLOATS, variance, i)
+                        .convertShape(VectorOperators.F2D, DOUBLES, 0)
+                        .reinterpretAsDoubles()
+                        .lanewise(VectorOperators.SQRT);
+                final DoubleVector threshold = m.mul(deviation.div(dR).sub(1.0).mul(dk).add(1.0));
+                bits |= ZERO_LONGS.blend(LONG_WEIGHTS[part],
+                        value.compare(VectorOperators.GT, threshold).cast(LONGS))
+                        .reduceLanes(VectorOperators.OR);
+            }
+            packed[packedOffset + (x >> 3)] = (byte) bits;
+        }
+        super.sauvola(pixels, pixelOffset + x, mean, variance, statsOffset + x,
+                length - x, k, R, packed, packedOffset + (x >> 3));
+    }
+
+    /**
+     * Bit of every lane in a packed byte, lane 0 in the most significant
+     * bit. {@code VectorMask.toLong} isn't intrinsic on JDK 17, blending the
+     * weights and reducing them is.
+     */
+    private static LongVector[] longWeights() {
+        final LongVector[] weights = new LongVector[8 / LANES];
+        for (int part = 0; part < weights.length; part++) {
+            final long[] lanes = new long[LANES];
+            for (int lane = 0; lane < LANES; lane++) {
+                lanes[lane] = 0x80 >>> (part * LANES + lane);
+            }
+            weights[part] = LongVector.fromArray(LONGS, lanes, 0);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,136 @@
+package com.stackleader.check.ocr;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackleader.check.ocr.preprocessing.OrientationEstimate.Orientation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.imageio.ImageIO;
+import net.sourceforge.tess4j.Word;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+public class CheckBatchApiTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OcrExecutor executor = new OcrExecutor(3, 1, Duration.ofSeconds(5), new SimpleMeterRegistry());
+    private MockMvc mvc;
+
+    @BeforeEach
+    public void setUp() {
+        OcrProcessor ocrProcessor = mock(OcrProcessor.class);
+        // 65 pixel wide images yield a line whose routing number fails the check digit
+        when(ocrProcessor.recognize(any(BufferedImage.class), any(Deadline.class))).thenAnswer(invocation -> {
+            String routingNumber = invocation.<BufferedImage>getArgument(0).getWidth() == 64 ? "011000015" : "011000016";
+            return new Recognition(new Word("A" + routingNumber + "A123456789C1234C", 90, new Rectangle()),
+                    Orientation.UPRIGHT, new HashMap<>(), QualityLevel.FULL);
+        });
+        CheckRecognizer checkRecognizer = new CheckRecognizer();
+        OcrMetrics ocrMetrics = new OcrMetrics(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(checkRecognizer, "ocrProcessor", ocrProcessor);
+        ReflectionTestUtils.setField(checkRecognizer, "ocrMetrics", ocrMetrics);
+        ReflectionTestUtils.setField(checkRecognizer, "imageDecoder", new ImageDecoder(0, 1));
+        CheckBatchApi api = new CheckBatchApi();
+        ReflectionTestUtils.setField(api, "checkRecognizer", checkRecognizer);
+        ReflectionTestUtils.setField(api, "ocrMetrics", ocrMetrics);
+        ReflectionTestUtils.setField(api, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(api, "ocrExecutor", executor);
+        ReflectionTestUtils.setField(api, "maxUploadBytes", 100_000L);
+        ReflectionTestUtils.setField(api, "maxInFlight", 2);
+        mvc = MockMvcBuilders.standaloneSetup(api).build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    public void reportsEveryZipEntry() throws Exception {
+        ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipBytes)) {
+            entry(zip, "checks/", new byte[0]);
+            entry(zip, "checks/good.png", png(64));
+            entry(zip, "checks/garbage.png", new byte[]{1, 2, 3});
+            entry(zip, "checks/bad-routing.png", png(65));
+            entry(zip, "checks/good-again.png", png(64));
+        }
+        Map<String, JsonNode> lines = perform(mvc, "application/zip", zipBytes.toByteArray());
+
+        assertEquals(4, lines.size());
+        assertEquals(0, lines.get("checks/good.png").get("index").asInt());
+        assertEquals("011000015", lines.get("checks/good.png").at("/toadLine/routingNumber").asText());
+        assertTrue(lines.get("checks/garbage.png").has("error"));
+        assertTrue(lines.get("checks/bad-routing.png").has("error"));
+        assertEquals(3, lines.get("checks/good-again.png").get("index").asInt());
+    }
+
+    @Test
+    public void reportsEveryMultipartFile() throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--b\r\nContent-Disposition: form-data; name=\"job\"\r\n\r\nbackfill\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        for (String name : new String[]{"a.png", "b.png"}) {
+            body.write(("--b\r\nContent-Disposition: form-data; name=\"check\"; filename=\"" + name
+                    + "\"\r\nContent-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            body.write(png(64));
+            body.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        body.write("--b--\r\n".getBytes(StandardCharsets.US_ASCII));
+        Map<String, JsonNode> lines = perform(mvc, "multipart/form-data; boundary=b", body.toByteArray());
+
+        assertEquals(2, lines.size());
+        assertEquals(1, lines.get("b.png").get("index").asInt());
+        assertEquals("123456789", lines.get("b.png").at("/toadLine/accountNumber").asText());
+    }
+
+    @Test
+    public void rejectsOtherContentTypes() throws Exception {
+        mvc.perform(post("/processChecks").contentType("image/png").content(png(64)))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    private Map<String, JsonNode> perform(MockMvc mvc, String contentType, byte[] body) throws Exception {
+        String response = mvc.perform(post("/processChecks").contentType(contentType).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Map<String, JsonNode> lines = new HashMap<>();
+        for (String line : response.split("\n")) {
+            JsonNode node = objectMapper.readTree(line);
+            lines.put(node.get("name").asText(), node);
+        }
+        return lines;
+    }
+
+    private static void entry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static byte[] png(int width) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, 32, BufferedImage.TYPE_BYTE_GRAY), "png", bytes);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,205 @@
+package com.stackleader.check.ocr;
+
+import com.stackleader.check.ocr.preprocessing.OrientationEstimate.Orientation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import javax.imageio.ImageIO;
+import net.sourceforge.tess4j.Word;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+public class CheckOcrApiTest {
+
+    private static final String LINE = "A011000015A123456789C1234C";
+
+    private final OcrExecutor executor = new OcrExecutor(1, 1, Duration.ofSeconds(5), new SimpleMeterRegistry());
+    private OcrProcessor ocrProcessor;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OcrMetrics ocrMetrics = new OcrMetrics(meterRegistry);
+    private CheckRecognizer checkRecognizer;
+    private CheckOcrApi api;
+    private MockMvc mvc;
+    private byte[] png;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        ocrProcessor = mock(OcrProcessor.class);
+        // only a 64x32 image yields the line, so each test checks the image arrived intact
+        when(ocrProcessor.recognize(argThat(image -> image.getWidth() == 64 && image.getHeight() == 32), any(Deadline.class)))
+                .thenReturn(new Recognition(new Word(LINE, 90, new Rectangle()), Orientation.UPRIGHT, new HashMap<>(),
+                        QualityLevel.FULL));
+        checkRecognizer = new CheckRecognizer();
+        ReflectionTestUtils.setField(checkRecognizer, "ocrProcessor", ocrProcessor);
+        ReflectionTestUtils.setField(checkRecognizer, "ocrMetrics", ocrMetrics);
+        ReflectionTestUtils.setField(checkRecognizer, "imageDecoder", new ImageDecoder(0, 1));
+        api = new CheckOcrApi();
+        ReflectionTestUtils.setField(api, "checkRecognizer", checkRecognizer);
+        ReflectionTestUtils.setField(api, "ocrMetrics", ocrMetrics);
+        ReflectionTestUtils.setField(api, "ocrExecutor", executor);
+        ReflectionTestUtils.setField(api, "maxUploadBytes", 100_000L);
+        mvc = MockMvcBuilders.standaloneSetup(api).build();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 32, BufferedImage.TYPE_BYTE_GRAY), "png", bytes);
+        png = bytes.toByteArray();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    public void acceptsDataUrl() throws Exception {
+        String dataUrl = "data:image/png;base64," + Base64.getEncoder().encodeToString(png);
+        mvc.perform(post("/processCheck").contentType(MediaType.TEXT_PLAIN).content(dataUrl))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.routingNumber").value("011000015"));
+    }
+
+    @Test
+    public void acceptsRawImageBytes() throws Exception {
+        mvc.perform(post("/processCheck").contentType(MediaType.IMAGE_PNG).content(png))
+                .andExpect(status().isOk());
+        assertEquals(1, meterRegistry.get("ocr.stage").tag("stage", "read").timer().count());
+        assertEquals(1, meterRegistry.get("ocr.stage").tag("stage", "decode").timer().count());
+        assertEquals(1, meterRegistry.get("ocr.stage").tag("stage", "parse").timer().count());
+        assertEquals(64, meterRegistry.get("ocr.image.width").summary().max());
+        mvc.perform(post("/processCheck").contentType(MediaType.APPLICATION_OCTET_STREAM).content(png))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void readsFrontPartOfMultipartUpload() throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        part(body, "back", new byte[]{1, 2, 3});
+        part(body, "front", png);
+        body.write("--boundary--\r\n".getBytes(StandardCharsets.US_ASCII));
+        mvc.perform(post("/processCheck")
+                .contentType("multipart/form-data; boundary=boundary")
+                .content(body.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("123456789"));
+    }
+
+    @Test
+    public void rejectsOversizedAndMalformedBodies() throws Exception {
+        mvc.perform(post("/processCheck").contentType(MediaType.APPLICATION_OCTET_STREAM).content(new byte[100_001]))
+                .andExpect(status().isPayloadTooLarge());
+        mvc.perform(post("/processCheck").contentType(MediaType.APPLICATION_OCTET_STREAM).content(new byte[64]))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/processCheck").contentType(MediaType.TEXT_PLAIN).content("not a data url"))
+                .andExpect(status().isBadRequest());
+        assertEquals(1, meterRegistry.get("ocr.failures").tag("reason", "upload_too_large").counter().count());
+        assertEquals(2, meterRegistry.get("ocr.failures").tag("reason", "unreadable_upload").counter().count());
+    }
+
+    @Test
+    public void recognizesResubmittedImageOnce() throws Exception {
+        ReflectionTestUtils.setField(checkRecognizer, "resultCache", new OcrResultCache(10, Duration.ofMinutes(1), new SimpleMeterRegistry()));
+        String dataUrl = "data:image/png;base64," + Base64.getEncoder().encodeToString(png);
+        mvc.perform(post("/processCheck").contentType(MediaType.TEXT_PLAIN).content(dataUrl))
+                .andExpect(status().isOk());
+        // the key is the decoded image, whichever way it was uploaded
+        mvc.perform(post("/processCheck").contentType(MediaType.IMAGE_PNG).content(png))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.routingNumber").value("011000015"));
+        verify(ocrProcessor, times(1)).recognize(any(), any());
+    }
+
+    @Test
+    public void answersUnprocessableWithoutAccountNumber() throws Exception {
+        doReturn(new Recognition(new Word("A011000015A", 90, new Rectangle()), Orientation.UPRIGHT, new HashMap<>(),
+                QualityLevel.FULL))
+                .when(ocrProcessor).recognize(argThat(image -> image.getWidth() == 65), any(Deadline.class));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(65, 32, BufferedImage.TYPE_BYTE_GRAY), "png", bytes);
+        mvc.perform(post("/processCheck").contentType(MediaType.IMAGE_PNG).content(bytes.toByteArray()))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.routingNumber").value("011000015"))
+                .andExpect(jsonPath("$.errors.accountNumber").value("ABSENT"));
+        assertEquals(1, meterRegistry.get("ocr.failures").tag("reason", "missing_fields").counter().count());
+        assertEquals(1, meterRegistry.get("ocr.toadline.missing").tags("field", "accountNumber", "reason", "absent")
+                .counter().count());
+    }
+
+    @Test
+    public void answersTooManyRequestsWhenShedding() throws Exception {
+        OcrExecutor saturated = mock(OcrExecutor.class);
+        when(saturated.execute(any(), any())).thenThrow(new OcrRejectedException("OCR queue is full", 3));
+        ReflectionTestUtils.setField(api, "ocrExecutor", saturated);
+        mvc.perform(post("/processCheck").contentType(MediaType.IMAGE_PNG).content(png))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"));
+    }
+
+    @Test
+    public void answersRememberedImageWhileShedding() throws Exception {
+        ReflectionTestUtils.setField(checkRecognizer, "resultCache", new OcrResultCache(10, Duration.ofMinutes(1), new SimpleMeterRegistry()));
+        mvc.perform(post("/processCheck").contentType(MediaType.IMAGE_PNG).content(png))
+                .andExpect(status().isOk());
+        OcrExecutor saturated = mock(OcrExecutor.class);
+        when(saturated.execute(any(), any())).thenThrow(new OcrRejectedException("OCR queue is full", 3));
+        ReflectionTestUtils.setField(api, "ocrExecutor", saturated);
+        mvc.perform(post("/processCheck").contentType(MediaType.IMAGE_PNG).content(png))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("123456789"));
+        verify(saturated, never()).execute(any(), any());
+    }
+
+    @Test
+    public void answersGatewayTimeoutPastDeadline() throws Exception {
+        // recognizes until the deadline expires, as a monitored engine would
+        doAnswer(invocation -> {
+            Deadline deadline = invocation.getArgument(1);
+            while (!deadline.isExpired()) {
+                Thread.sleep(1);
+            }
+            deadline.check();
+            return null;
+        }).when(ocrProcessor).recognize(argThat(image -> image.getWidth() == 66), any(Deadline.class));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(66, 32, BufferedImage.TYPE_BYTE_GRAY), "png", bytes);
+        mvc.perform(post("/processCheck").contentType(MediaType.IMAGE_PNG).content(bytes.toByteArray())
+                .header(CheckOcrApi.TIMEOUT_HEADER, "20"))
+                .andExpect(status().isGatewayTimeout());
+        assertEquals(1, meterRegistry.get("ocr.failures").tag("reason", "deadline_exceeded").counter().count());
+        mvc.perform(post("/processCheck").contentType(MediaType.IMAGE_PNG).content(png)
+                .header(CheckOcrApi.TIMEOUT_HEADER, "soon"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static void part(ByteArrayOutputStream body, String name, byte[] content) throws IOException {
+        body.write(("--boundary\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\"" + name
+                + ".png\"\r\nContent-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.write(content);
+        body.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,86 @@
+package com.stackleader.check.ocr;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.stackleader.check.ocr.preprocessing.OrientationEstimate.Orientation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import javax.imageio.ImageIO;
+import net.sourceforge.tess4j.Word;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class CheckRecognizerTest {
+
+    private final OcrProcessor ocrProcessor = mock(OcrProcessor.class);
+    private final OcrResultStore resultStore = mock(OcrResultStore.class);
+    private final CheckRecognizer checkRecognizer = new CheckRecognizer();
+    private byte[] png;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        ReflectionTestUtils.setField(checkRecognizer, "ocrProcessor", ocrProcessor);
+        ReflectionTestUtils.setField(checkRecognizer, "resultStore", resultStore);
+        ReflectionTestUtils.setField(checkRecognizer, "ocrMetrics", new OcrMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(checkRecognizer, "imageDecoder", new ImageDecoder(0, 1));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 32, BufferedImage.TYPE_BYTE_GRAY), "png", bytes);
+        png = bytes.toByteArray();
+    }
+
+    @Test
+    public void storedResultSkipsRecognition() throws Exception {
+        when(resultStore.find(any())).thenReturn(Optional.of(new ToadLine("A011000015A123456789C1234C")));
+
+        ToadLine toadLine = checkRecognizer.recognize(png, Callable::call);
+
+        assertEquals("123456789", toadLine.getAccountNumber());
+        verify(ocrProcessor, never()).recognize(any(), any());
+        verify(resultStore, never()).record(any(), any(), any());
+    }
+
+    @Test
+    public void rememberedImageIsAnsweredWithoutAnOcrThread() throws Exception {
+        when(resultStore.find(Hashing.sha256().hashBytes(png)))
+                .thenReturn(Optional.of(new ToadLine("A011000015A123456789C1234C")));
+
+        ToadLine toadLine = checkRecognizer.recognize(png, Deadline.none(), work -> {
+            throw new OcrRejectedException("OCR queue is full", 1);
+        });
+
+        assertEquals("123456789", toadLine.getAccountNumber());
+        verify(ocrProcessor, never()).recognize(any(), any());
+    }
+
+    @Test
+    public void recordsNewRecognitionUnderItsHash() throws Exception {
+        when(resultStore.find(any())).thenReturn(Optional.empty());
+        Recognition recognition = new Recognition(new Word("A011000015A123456789C1234C", 90, new Rectangle()),
+                Orientation.UPSIDE_DOWN, new HashMap<>(), QualityLevel.FULL);
+        when(ocrProcessor.recognize(any(), any())).thenReturn(recognition);
+
+        ToadLine toadLine = checkRecognizer.recognize(png, Callable::call);
+
+        ArgumentCaptor<HashCode> contentHash = ArgumentCaptor.forClass(HashCode.class);
+        verify(resultStore).find(contentHash.capture());
+        verify(resultStore).record(eq(contentHash.getValue()), eq(toadLine), eq(recognition));
+        assertEquals(32, contentHash.getValue().bits() / 8);
+        assertTrue(recognition.getStageNanos().containsKey("decode"));
+    }
+}
@@ -0,0 +1,35 @@
+package com.stackleader.check.ocr;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class DataUrlsTest {
+
+    @Test
+    public void decodesPayloadAcrossLineBreaks() throws Exception {
+        byte[] payload = new byte[3000];
+        new Random(7).nextBytes(payload);
+        String body = "data:image/jpeg;base64," + Base64.getMimeEncoder().encodeToString(payload);
+        try (InputStream decoded = DataUrls.openPayload(stream(body))) {
+            assertArrayEquals(payload, decoded.readAllBytes());
+        }
+    }
+
+    @Test
+    public void rejectsBodyWithoutDataUrlHeader() {
+        assertThrows(IllegalArgumentException.class,
+                () -> DataUrls.openPayload(stream(Base64.getEncoder().encodeToString(new byte[64]))));
+        assertThrows(IllegalArgumentException.class,
+                () -> DataUrls.openPayload(stream("data:image/png,rawpixels")));
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII));
+    }
+}
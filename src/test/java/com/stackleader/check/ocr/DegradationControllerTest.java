@@ -0,0 +1,75 @@
+package com.stackleader.check.ocr;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class DegradationControllerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // intervals are ended by the tests
+    private final DegradationController controller = new DegradationController(Duration.ofMillis(1000),
+            Duration.ofMillis(200), Duration.ofHours(1), 3, meterRegistry);
+
+    @AfterEach
+    public void tearDown() {
+        controller.close();
+    }
+
+    @Test
+    public void dropsOneLevelPerIntervalOverTarget() {
+        record(100, 0, 100);
+        controller.evaluate();
+        assertEquals(QualityLevel.FULL, controller.getLevel());
+
+        // a few slow tasks put the 95th percentile over the latency target
+        record(90, 0, 100);
+        record(10, 0, 1500);
+        controller.evaluate();
+        assertEquals(QualityLevel.REDUCED, controller.getLevel());
+
+        record(100, 300, 400);
+        controller.evaluate();
+        assertEquals(QualityLevel.MINIMAL, controller.getLevel());
+        record(100, 300, 400);
+        controller.evaluate();
+        assertEquals(QualityLevel.MINIMAL, controller.getLevel());
+        assertEquals(2, meterRegistry.get("ocr.degradation.level").gauge().value());
+    }
+
+    @Test
+    public void recoversAfterConsecutiveCalmIntervals() {
+        record(10, 0, 1500);
+        controller.evaluate();
+        assertEquals(QualityLevel.REDUCED, controller.getLevel());
+
+        record(10, 0, 100);
+        controller.evaluate();
+        record(10, 0, 100);
+        controller.evaluate();
+        // within the targets but above half of them, the count starts over
+        record(10, 150, 400);
+        controller.evaluate();
+        record(10, 0, 100);
+        controller.evaluate();
+        record(10, 0, 100);
+        controller.evaluate();
+        assertEquals(QualityLevel.REDUCED, controller.getLevel());
+
+        // an idle interval is calm as well
+        controller.evaluate();
+        assertEquals(QualityLevel.FULL, controller.getLevel());
+        assertEquals(0, meterRegistry.get("ocr.degradation.level").gauge().value());
+    }
+
+    private void record(int tasks, long queueWaitMillis, long latencyMillis) {
+        for (int i = 0; i < tasks; i++) {
+            controller.record(queueWaitMillis * MILLIS, latencyMillis * MILLIS);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.stackleader.check.ocr;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class ImageDecoderTest {
+
+    @Test
+    public void subsamplesToTargetWidth() throws IOException {
+        ImageDecoder decoder = new ImageDecoder(300, 1);
+        BufferedImage image = decoder.read(encode(check(1000, 400), "jpeg"));
+        assertEquals(334, image.getWidth());
+        assertEquals(134, image.getHeight());
+        // smaller than twice the target, every pixel is kept
+        assertEquals(500, decoder.read(encode(check(500, 200), "png")).getWidth());
+    }
+
+    @Test
+    public void decodesBottomBand() throws IOException {
+        ImageDecoder decoder = new ImageDecoder(0, 0.25);
+        for (int i = 0; i < 2; i++) {
+            BufferedImage band = decoder.read(encode(check(400, 200), "png"));
+            assertEquals(400, band.getWidth());
+            assertEquals(50, band.getHeight());
+            assertEquals(Color.BLACK.getRGB(), band.getRGB(200, 0));
+        }
+    }
+
+    @Test
+    public void rejectsUnknownFormat() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ImageDecoder(0, 1).read(new ByteArrayInputStream(new byte[64])));
+    }
+
+    /**
+     * White above and black in the bottom quarter, where the MICR line is.
+     */
+    private static BufferedImage check(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, height * 3 / 4, width, height / 4);
+        g.dispose();
+        return image;
+    }
+
+    private static ByteArrayInputStream encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, format, bytes);
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+}
@@ -0,0 +1,110 @@
+package com.stackleader.check.ocr;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LibrarianTest {
+
+    private static final long EPOCH = 1_000_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void reusesIntactExtraction() throws Exception {
+        File jar = jar("v1.jar", "tesseract", "leptonica");
+        File target = dir.resolve("out/linux-x86-64").toFile();
+
+        Librarian.copyJarResourceToPath(connect(jar), target);
+        File library = new File(target, "libtesseract.so");
+        assertEquals("tesseract", Files.readString(library.toPath()));
+        assertTrue(Librarian.getManifestFile(target).isFile());
+        assertTrue(library.setLastModified(EPOCH));
+
+        Librarian.copyJarResourceToPath(connect(jar), target);
+        assertEquals(EPOCH, library.lastModified());
+    }
+
+    @Test
+    public void replacesFilesThatChangedAtSameSize() throws Exception {
+        File target = dir.resolve("out/linux-x86-64").toFile();
+        Librarian.copyJarResourceToPath(connect(jar("v1.jar", "tesseract", "leptonica")), target);
+        File leptonica = new File(target, "sub/libleptonica.so");
+        assertTrue(leptonica.setLastModified(EPOCH));
+
+        Librarian.copyJarResourceToPath(connect(jar("v2.jar", "TESSERACT", "leptonica")), target);
+
+        assertEquals("TESSERACT", Files.readString(new File(target, "libtesseract.so").toPath()));
+        assertEquals(EPOCH, leptonica.lastModified());
+    }
+
+    @Test
+    public void restoresMissingFile() throws Exception {
+        File jar = jar("v1.jar", "tesseract", "leptonica");
+        File target = dir.resolve("out/linux-x86-64").toFile();
+        Librarian.copyJarResourceToPath(connect(jar), target);
+        File library = new File(target, "libtesseract.so");
+        Files.delete(library.toPath());
+
+        Librarian.copyJarResourceToPath(connect(jar), target);
+
+        assertEquals("tesseract", Files.readString(library.toPath()));
+    }
+
+    @Test
+    public void replacesFileCorruptedAtSameSize() throws Exception {
+        File jar = jar("v1.jar", "tesseract", "leptonica");
+        File target = dir.resolve("out/linux-x86-64").toFile();
+        Librarian.copyJarResourceToPath(connect(jar), target);
+        File library = new File(target, "libtesseract.so");
+        Files.writeString(library.toPath(), "tesser\0\0\0");
+
+        Librarian.copyJarResourceToPath(connect(jar), target);
+
+        assertEquals("tesseract", Files.readString(library.toPath()));
+    }
+
+    @Test
+    public void findsLibrariesOnlyWhereJarsBundleThem() {
+        assertTrue(Librarian.hasBundledLibraries("win32-x86-64"));
+        assertFalse(Librarian.hasBundledLibraries("linux-x86-64"));
+    }
+
+    private File jar(String name, String tesseract, String leptonica) throws IOException {
+        File jar = dir.resolve(name).toFile();
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            // directory entries, as in a packaged jar, resources are looked up by them
+            write(out, "linux-x86-64/", null);
+            write(out, "linux-x86-64/libtesseract.so", tesseract);
+            write(out, "linux-x86-64/sub/libleptonica.so", leptonica);
+            write(out, "win32-x86-64/libtesseract.dll", tesseract);
+        }
+        return jar;
+    }
+
+    private static void write(JarOutputStream out, String name, String content) throws IOException {
+        out.putNextEntry(new JarEntry(name));
+        if (content != null) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        out.closeEntry();
+    }
+
+    private static JarURLConnection connect(File jar) throws IOException {
+        JarURLConnection connection = (JarURLConnection) new URL("jar:" + jar.toURI() + "!/linux-x86-64").openConnection();
+        connection.setUseCaches(false);
+        return connection;
+    }
+}
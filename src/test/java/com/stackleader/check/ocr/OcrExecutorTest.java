@@ -0,0 +1,205 @@
+package com.stackleader.check.ocr;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class OcrExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private OcrExecutor ocrExecutor;
+
+    @AfterEach
+    public void tearDown() {
+        callers.shutdownNow();
+        ocrExecutor.close();
+    }
+
+    @Test
+    public void shedsWhenQueueIsFull() throws Exception {
+        ocrExecutor = new OcrExecutor(1, 1, Duration.ofSeconds(5), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        Future<String> first = callers.submit(() -> ocrExecutor.execute(() -> {
+            running.countDown();
+            release.await();
+            return "first";
+        }));
+        running.await();
+        Future<String> queued = callers.submit(() -> ocrExecutor.execute(() -> "queued"));
+        waitForQueueDepth(1);
+
+        OcrRejectedException rejected = assertThrows(OcrRejectedException.class, () -> ocrExecutor.execute(() -> "shed"));
+        assertTrue(rejected.getRetryAfterSeconds() >= 1);
+        assertEquals(1, meterRegistry.get("ocr.executor.rejected").tag("reason", "queue_full").counter().count());
+
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shedsWorkThatWaitedTooLong() throws Exception {
+        ocrExecutor = new OcrExecutor(1, 1, Duration.ofMillis(20), meterRegistry);
+        CountDownLatch running = new CountDownLatch(1);
+        Future<String> first = callers.submit(() -> ocrExecutor.execute(() -> {
+            running.countDown();
+            Thread.sleep(100);
+            return "first";
+        }));
+        running.await();
+
+        assertThrows(OcrRejectedException.class, () -> ocrExecutor.execute(() -> "late"));
+        assertEquals(1, meterRegistry.get("ocr.executor.rejected").tag("reason", "queue_timeout").counter().count());
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rejectsCallerAsSoonAsMaxQueueWaitPasses() throws Exception {
+        ocrExecutor = new OcrExecutor(1, 1, Duration.ofMillis(20), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        Future<String> first = callers.submit(() -> ocrExecutor.execute(() -> {
+            running.countDown();
+            release.await();
+            return "first";
+        }));
+        running.await();
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertThrows(OcrRejectedException.class, () -> ocrExecutor.execute(() -> ran.getAndSet(true)));
+        // rejected while the first task still holds the only thread, and no longer queued
+        assertFalse(first.isDone());
+        assertEquals(0, meterRegistry.get("ocr.executor.queue.depth").gauge().value());
+
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+        assertEquals(1, meterRegistry.get("ocr.executor.rejected").tag("reason", "queue_timeout").counter().count());
+    }
+
+    @Test
+    public void failsWorkWhoseDeadlineExpiredWhileQueued() throws Exception {
+        ocrExecutor = new OcrExecutor(1, 1, Duration.ofSeconds(5), meterRegistry);
+        CountDownLatch running = new CountDownLatch(1);
+        Future<String> first = callers.submit(() -> ocrExecutor.execute(() -> {
+            running.countDown();
+            Thread.sleep(100);
+            return "first";
+        }));
+        running.await();
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertThrows(OcrTimeoutException.class, () -> ocrExecutor.execute(() -> ran.getAndSet(true),
+                Deadline.after(Duration.ofMillis(20))));
+        assertFalse(ran.get());
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void answersTimeoutAtDeadlineWhileStillQueued() throws Exception {
+        ocrExecutor = new OcrExecutor(1, 1, Duration.ofSeconds(5), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        Future<String> first = callers.submit(() -> ocrExecutor.execute(() -> {
+            running.countDown();
+            release.await();
+            return "first";
+        }));
+        running.await();
+
+        assertThrows(OcrTimeoutException.class, () -> ocrExecutor.execute(() -> "late",
+                Deadline.after(Duration.ofMillis(20))));
+        assertFalse(first.isDone());
+        assertEquals(0, meterRegistry.get("ocr.executor.queue.depth").gauge().value());
+        assertEquals(0, meterRegistry.get("ocr.executor.rejected").tag("reason", "queue_timeout").counter().count());
+
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void enqueueWaitsForRoomInsteadOfShedding() throws Exception {
+        ocrExecutor = new OcrExecutor(1, 1, Duration.ofMillis(20), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        ocrExecutor.enqueue(() -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        running.await();
+        ocrExecutor.enqueue(done::countDown);
+        Future<?> blocked = callers.submit(() -> {
+            ocrExecutor.enqueue(done::countDown);
+            return null;
+        });
+        assertThrows(TimeoutException.class, () -> blocked.get(100, TimeUnit.MILLISECONDS));
+
+        // both waited far beyond the maximum queue wait and still ran
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, meterRegistry.get("ocr.executor.rejected").tag("reason", "queue_timeout").counter().count());
+    }
+
+    @Test
+    public void admitsRequestsWhileBatchHoldsItsShare() throws Exception {
+        ocrExecutor = new OcrExecutor(1, 4, Duration.ofSeconds(5), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        ocrExecutor.enqueue(() -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        running.await();
+        ocrExecutor.enqueue(done::countDown);
+        ocrExecutor.enqueue(done::countDown);
+        // half of the queue is the batch's share, the rest is free
+        Future<?> blocked = callers.submit(() -> {
+            ocrExecutor.enqueue(done::countDown);
+            return null;
+        });
+        assertThrows(TimeoutException.class, () -> blocked.get(100, TimeUnit.MILLISECONDS));
+        assertEquals(2, meterRegistry.get("ocr.executor.queue.depth").gauge().value());
+
+        Future<String> request = callers.submit(() -> ocrExecutor.execute(() -> "request"));
+        waitForQueueDepth(3);
+
+        release.countDown();
+        assertEquals("request", request.get(5, TimeUnit.SECONDS));
+        blocked.get(5, TimeUnit.SECONDS);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, meterRegistry.get("ocr.executor.rejected").tag("reason", "queue_full").counter().count());
+    }
+
+    private void waitForQueueDepth(int depth) throws InterruptedException {
+        while (meterRegistry.get("ocr.executor.queue.depth").gauge().value() < depth) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.stackleader.check.ocr;
+
+import com.stackleader.check.ocr.preprocessing.OrientationEstimate.Orientation;
+import com.stackleader.check.ocr.preprocessing.PipelineWorkspacePool;
+import com.stackleader.check.ocr.preprocessing.PixelBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import net.sourceforge.tess4j.Word;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class OcrProcessorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OcrEngine engine = mock(OcrEngine.class);
+    private final OcrProcessor ocrProcessor = new OcrProcessor();
+    private final BufferedImage check = new BufferedImage(600, 275, BufferedImage.TYPE_BYTE_GRAY);
+
+    @BeforeEach
+    public void setUp() {
+        when(engine.getWords(any(PixelBuffer.class), any(RecognitionTier.class), anyInt(), any(Deadline.class)))
+                .thenAnswer(invocation -> new ArrayList<>());
+        ReflectionTestUtils.setField(ocrProcessor, "ocrEnginePool", new OcrEnginePool(1, () -> engine, meterRegistry));
+        ReflectionTestUtils.setField(ocrProcessor, "ocrMetrics", new OcrMetrics(meterRegistry));
+        ReflectionTestUtils.setField(ocrProcessor, "workspacePool", new PipelineWorkspacePool(1));
+    }
+
+    @Test
+    public void climbsLadderUntilTierReadsLine() {
+        when(engine.getWords(any(PixelBuffer.class), eq(RecognitionTier.SPARSE), anyInt(), any(Deadline.class)))
+                .thenAnswer(invocation -> new ArrayList<>(List.of(
+                        new Word("A011000015A123456789C1234C", 90, new Rectangle(10, 240, 500, 20)))));
+
+        Recognition recognition = ocrProcessor.recognize(check);
+
+        assertEquals("A011000015A123456789C1234C", recognition.getLine().getText());
+        assertEquals(Orientation.UPRIGHT, recognition.getOrientation());
+        verify(engine, times(2)).getWords(any(PixelBuffer.class), eq(RecognitionTier.LINE), anyInt(), any(Deadline.class));
+        verify(engine, times(0)).getWords(any(PixelBuffer.class), eq(RecognitionTier.AUTO), anyInt(), any(Deadline.class));
+        assertEquals(1, meterRegistry.get("ocr.ladder.resolved").tag("tier", "sparse").counter().count());
+    }
+
+    @Test
+    public void minimalQualityTriesFirstTierInOneOrientation() {
+        DegradationController degradationController = mock(DegradationController.class);
+        when(degradationController.getLevel()).thenReturn(QualityLevel.MINIMAL);
+        ReflectionTestUtils.setField(ocrProcessor, "degradationController", degradationController);
+
+        assertThrows(NoSuchElementException.class, () -> ocrProcessor.recognize(check));
+
+        verify(engine, times(1)).getWords(any(PixelBuffer.class), any(RecognitionTier.class), anyInt(), any(Deadline.class));
+        verify(engine).getWords(any(PixelBuffer.class), eq(RecognitionTier.LINE), anyInt(), any(Deadline.class));
+    }
+
+    @Test
+    public void countsCheckNoTierReads() {
+        assertThrows(NoSuchElementException.class, () -> ocrProcessor.recognize(check));
+
+        verify(engine, times(6)).getWords(any(PixelBuffer.class), any(RecognitionTier.class), anyInt(), any(Deadline.class));
+        assertEquals(1, meterRegistry.get("ocr.ladder.resolved").tag("tier", "none").counter().count());
+    }
+}
@@ -0,0 +1,149 @@
+package com.stackleader.check.ocr;
+
+import com.google.common.hash.HashCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class OcrResultCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OcrResultCache cache = new OcrResultCache(100, Duration.ofMinutes(1), meterRegistry);
+    private final AtomicInteger recognitions = new AtomicInteger();
+
+    @Test
+    public void recognizesSameBytesOnce() throws Exception {
+        ToadLine first = cache.get(hash(1, 2, 3), () -> recognize("A011000015A123456789C1234C"));
+        ToadLine again = cache.get(hash(1, 2, 3), () -> recognize("A011000015A987654321C1234C"));
+        cache.get(hash(1, 2, 4), () -> recognize("A011000015A987654321C1234C"));
+
+        assertSame(first, again);
+        assertEquals(2, recognitions.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(2, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    public void remembersUndecodableImages() {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalArgumentException.class, () -> cache.get(hash(5), () -> {
+                recognitions.incrementAndGet();
+                throw new IllegalArgumentException("Unsupported image format");
+            }));
+        }
+        assertEquals(1, recognitions.get());
+    }
+
+    @Test
+    public void retriesImagesWithoutLine() throws Exception {
+        assertThrows(NoSuchElementException.class, () -> cache.get(hash(6), () -> {
+            recognitions.incrementAndGet();
+            throw new NoSuchElementException("No MICR line with a valid routing number");
+        }));
+        cache.get(hash(6), () -> recognize("A011000015A123456789C1234C"));
+        assertEquals(2, recognitions.get());
+    }
+
+    @Test
+    public void forgetsRejections() throws Exception {
+        assertThrows(OcrRejectedException.class, () -> cache.get(hash(7), () -> {
+            throw new OcrRejectedException("OCR queue is full", 1);
+        }));
+        cache.get(hash(7), () -> recognize("A011000015A123456789C1234C"));
+        assertEquals(1, recognitions.get());
+    }
+
+    @Test
+    public void concurrentLookupsShareOneRecognition() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<ToadLine> first = callers.submit(() -> cache.get(hash(8), () -> {
+                loading.countDown();
+                release.await();
+                return recognize("A011000015A123456789C1234C");
+            }));
+            loading.await();
+            Future<ToadLine> second = callers.submit(() -> cache.get(hash(8),
+                    () -> recognize("A011000015A987654321C1234C")));
+            assertThrows(TimeoutException.class, () -> second.get(50, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, recognitions.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void waitForOtherLookupEndsAtDeadline() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<ToadLine> first = callers.submit(() -> cache.get(hash(10), () -> {
+                loading.countDown();
+                release.await();
+                return recognize("A011000015A123456789C1234C");
+            }));
+            loading.await();
+
+            assertThrows(OcrTimeoutException.class, () -> cache.get(hash(10), Deadline.after(Duration.ofMillis(20)),
+                    true, () -> recognize("A011000015A987654321C1234C")));
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            assertEquals(1, recognitions.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void ocrThreadsDontWaitForOtherLookups() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<ToadLine> first = callers.submit(() -> cache.get(hash(9), () -> {
+                loading.countDown();
+                release.await();
+                return recognize("A011000015A123456789C1234C");
+            }));
+            loading.await();
+
+            // the load it would wait for might be queued behind this thread
+            ToadLine own = cache.get(hash(9), Deadline.none(), false, () -> recognize("A011000015A987654321C1234C"));
+
+            assertEquals("987654321", own.getAccountNumber());
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            assertEquals(2, recognitions.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static HashCode hash(int... bytes) {
+        return HashCode.fromInt(Arrays.hashCode(bytes));
+    }
+
+    private ToadLine recognize(String line) {
+        recognitions.incrementAndGet();
+        return new ToadLine(line);
+    }
+}
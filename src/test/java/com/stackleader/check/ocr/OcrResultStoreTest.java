@@ -0,0 +1,83 @@
+package com.stackleader.check.ocr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.HashCode;
+import com.stackleader.check.ocr.preprocessing.OrientationEstimate.Orientation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.Rectangle;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import net.sourceforge.tess4j.Word;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OcrResultStoreTest {
+
+    private OcrResultStore store;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    public void skipsLookupsAfterOneTimedOut() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement select = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        when(connection.prepareStatement(anyString())).thenReturn(select);
+        when(select.executeQuery()).thenThrow(new SQLTimeoutException("canceling statement due to user request"));
+        store = new OcrResultStore(dataSource, 10, Duration.ofMillis(10), 10, Duration.ofMillis(1500),
+                new ObjectMapper(), new SimpleMeterRegistry());
+        // the table was created by the constructor
+        assertTrue(store.isAvailable());
+
+        assertTrue(store.find(HashCode.fromInt(1)).isEmpty());
+        assertFalse(store.isAvailable());
+        assertTrue(store.find(HashCode.fromInt(1)).isEmpty());
+
+        verify(select).setQueryTimeout(2);
+        verify(select, times(1)).executeQuery();
+    }
+
+    @Test
+    public void recordsQualityLevelAndCompleteness() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        when(connection.prepareStatement(anyString())).thenReturn(insert);
+        CountDownLatch written = new CountDownLatch(1);
+        when(insert.executeBatch()).thenAnswer(invocation -> {
+            written.countDown();
+            return new int[]{1};
+        });
+        store = new OcrResultStore(dataSource, 10, Duration.ofMillis(10), 10, Duration.ofMillis(1500),
+                new ObjectMapper(), new SimpleMeterRegistry());
+
+        String line = "A011000015A";
+        store.record(HashCode.fromInt(1), new ToadLine(line), new Recognition(new Word(line, 90, new Rectangle()),
+                Orientation.UPRIGHT, new HashMap<>(), QualityLevel.REDUCED));
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        verify(insert).setString(11, "REDUCED");
+        verify(insert).setBoolean(12, false);
+    }
+}
@@ -0,0 +1,176 @@
+package com.stackleader.check.ocr;
+
+import com.stackleader.check.ocr.preprocessing.OrientationEstimate.Orientation;
+import com.stackleader.check.ocr.preprocessing.PixelBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.Rectangle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.tess4j.Word;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class OrientationRaceTest {
+
+    private static final String VALID_LINE = "A011000015A123456789C1234C";
+
+    private final PixelBuffer upright = new PixelBuffer();
+    private final PixelBuffer flipped = new PixelBuffer();
+    private final CountDownLatch uprightStarted = new CountDownLatch(1);
+    private final CountDownLatch uprightRelease = new CountDownLatch(1);
+
+    @Test
+    public void flippedLineWinsWhileUprightIsStillRecognizing() throws Exception {
+        OcrEnginePool pool = new OcrEnginePool(2, this::engine, new SimpleMeterRegistry());
+        OrientationRace race = new OrientationRace(pool, 1);
+        assertTrue(race.tryAcquire());
+
+        Optional<Word> line = race.race(upright, flipped, RecognitionTier.LINE, 0, Deadline.none(),
+                OrientationRaceTest::accepted);
+
+        assertEquals(VALID_LINE, line.orElseThrow().getText());
+        // the permit comes back once the upright lane finishes too
+        assertFalse(race.tryAcquire());
+        uprightRelease.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        boolean acquired = false;
+        while (!acquired && System.nanoTime() < deadline) {
+            acquired = race.tryAcquire();
+            Thread.sleep(1);
+        }
+        assertTrue(acquired);
+        race.close();
+    }
+
+    @Test
+    public void losingLaneStopsWhenItsDeadlineIsCancelled() throws Exception {
+        OcrEnginePool pool = new OcrEnginePool(2, this::monitoredEngine, new SimpleMeterRegistry());
+        OrientationRace race = new OrientationRace(pool, 1);
+        assertTrue(race.tryAcquire());
+
+        Optional<Word> line = race.race(upright, flipped, RecognitionTier.LINE, 0, Deadline.none(),
+                OrientationRaceTest::accepted);
+
+        assertEquals(VALID_LINE, line.orElseThrow().getText());
+        // uprightRelease is never counted down, the upright lane ends through its monitor
+        assertTrue(awaitPermit(race));
+        assertEquals(0, pool.getActive());
+        race.close();
+    }
+
+    @Test
+    public void expiredDeadlineEndsRace() throws Exception {
+        OcrEnginePool pool = new OcrEnginePool(2, this::monitoredEngine, new SimpleMeterRegistry());
+        OrientationRace race = new OrientationRace(pool, 1);
+        assertTrue(race.tryAcquire());
+
+        assertThrows(OcrTimeoutException.class, () -> race.race(upright, upright, RecognitionTier.LINE, 0,
+                Deadline.after(Duration.ofMillis(50)), OrientationRaceTest::accepted));
+
+        assertTrue(awaitPermit(race));
+        race.close();
+    }
+
+    @Test
+    public void noLineWhenNeitherFrameYieldsOne() {
+        uprightRelease.countDown();
+        OcrEnginePool pool = new OcrEnginePool(1, this::engine, new SimpleMeterRegistry());
+        OrientationRace race = new OrientationRace(pool, 1);
+        assertTrue(race.tryAcquire());
+        assertTrue(race.race(upright, upright, RecognitionTier.LINE, 0, Deadline.none(),
+                OrientationRaceTest::accepted).isEmpty());
+        race.close();
+    }
+
+    private static boolean awaitPermit(OrientationRace race) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (race.tryAcquire()) {
+                return true;
+            }
+            Thread.sleep(1);
+        }
+        return false;
+    }
+
+    private static Optional<Word> accepted(Orientation orientation, List<Word> words) {
+        return words.stream()
+                .filter(word -> ToadLine.hasValidRoutingNumber(word.getText()))
+                .findFirst();
+    }
+
+    /**
+     * Native recognition doesn't react to the interrupt of a cancelled lane.
+     */
+    private void awaitRelease() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                uprightRelease.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private OcrEngine engine() {
+        OcrEngine engine = mock(OcrEngine.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(4)).run();
+            List<Word> words = new ArrayList<>();
+            if (invocation.getArgument(0) == flipped) {
+                // an upright lane that never started would be cancelled outright
+                uprightStarted.await();
+                words.add(new Word(VALID_LINE, 90, new Rectangle()));
+            } else {
+                uprightStarted.countDown();
+                awaitRelease();
+                words.add(new Word("A011000016A1", 90, new Rectangle()));
+            }
+            return words;
+        }).when(engine).getWords(any(PixelBuffer.class), any(RecognitionTier.class), anyInt(), any(Deadline.class),
+                any(Runnable.class));
+        return engine;
+    }
+
+    /**
+     * Recognizes the upright frame until its deadline says to stop, as the
+     * cancel callback of a tesseract monitor would.
+     */
+    private OcrEngine monitoredEngine() {
+        OcrEngine engine = mock(OcrEngine.class);
+        doAnswer(invocation -> {
+            Deadline deadline = invocation.getArgument(3);
+            ((Runnable) invocation.getArgument(4)).run();
+            List<Word> words = new ArrayList<>();
+            if (invocation.getArgument(0) == flipped) {
+                uprightStarted.await();
+                words.add(new Word(VALID_LINE, 90, new Rectangle()));
+                return words;
+            }
+            uprightStarted.countDown();
+            while (!deadline.shouldStop()) {
+                Thread.onSpinWait();
+            }
+            deadline.check();
+            return words;
+        }).when(engine).getWords(any(PixelBuffer.class), any(RecognitionTier.class), anyInt(), any(Deadline.class),
+                any(Runnable.class));
+        return engine;
+    }
+}
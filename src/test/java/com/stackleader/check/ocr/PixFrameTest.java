@@ -0,0 +1,44 @@
+package com.stackleader.check.ocr;
+
+import com.stackleader.check.ocr.preprocessing.PixelBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+public class PixFrameTest {
+
+    @Test
+    public void binaryRowsAreInvertedWithClearPadding() {
+        PixelBuffer frame = new PixelBuffer().reset(37, 2, PixelBuffer.Format.BINARY);
+        // all white, padding bits of the last byte set as well
+        Arrays.fill(frame.getData(), (byte) 0xFF);
+        // black pixels at x = 0 and 33 of the first row, 36 of the second
+        frame.getData()[0] = (byte) 0x7F;
+        frame.getData()[4] = (byte) 0xBF;
+        frame.getData()[9] = (byte) 0xF7;
+        int wpl = PixFrame.wordsPerLine(37, 1);
+        IntBuffer words = IntBuffer.allocate(wpl * 2);
+
+        PixFrame.copy(frame, words, wpl);
+
+        assertEquals(2, wpl);
+        assertEquals(0x80000000, words.get(0));
+        assertEquals(0x40000000, words.get(1));
+        assertEquals(0, words.get(2));
+        assertEquals(0x08000000, words.get(3));
+    }
+
+    @Test
+    public void grayRowsArePaddedToWholeWords() {
+        PixelBuffer frame = new PixelBuffer().reset(6, 1, PixelBuffer.Format.GRAY);
+        System.arraycopy(new byte[]{1, 2, 3, 4, 5, (byte) 0xFF}, 0, frame.getData(), 0, 6);
+        int wpl = PixFrame.wordsPerLine(6, 8);
+        IntBuffer words = IntBuffer.allocate(wpl);
+
+        PixFrame.copy(frame, words, wpl);
+
+        assertEquals(0x01020304, words.get(0));
+        assertEquals(0x05FF0000, words.get(1));
+    }
+}
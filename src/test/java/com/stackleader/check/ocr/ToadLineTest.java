@@ -0,0 +1,60 @@
+package com.stackleader.check.ocr;
+
+import com.stackleader.check.ocr.ToadLine.FieldError;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class ToadLineTest {
+
+    @Test
+    public void readsPersonalCheck() {
+        ToadLine toadLine = new ToadLine("A011000015A 123D456789C 1234   B0000012550B");
+        assertEquals("011000015", toadLine.getRoutingNumber());
+        assertEquals("123-456789", toadLine.getAccountNumber());
+        assertEquals("1234", toadLine.getCheckNumber());
+        assertEquals("125.50", toadLine.getAmount());
+        assertNull(toadLine.getAuxOnUs());
+        assertTrue(toadLine.getErrors().isEmpty());
+        assertTrue(toadLine.isComplete());
+    }
+
+    @Test
+    public void takesCheckNumberOfBusinessCheckFromAuxOnUs() {
+        ToadLine toadLine = new ToadLine("C0001234C 5A011000015A 123456789C");
+        assertEquals("0001234", toadLine.getAuxOnUs());
+        assertEquals("0001234", toadLine.getCheckNumber());
+        assertEquals("123456789", toadLine.getAccountNumber());
+        assertTrue(toadLine.getErrors().isEmpty());
+    }
+
+    @Test
+    public void reportsWhyFieldsAreMissing() {
+        assertEquals(Map.of(ToadLine.ROUTING_NUMBER, FieldError.INVALID_CHECK_DIGIT,
+                ToadLine.CHECK_NUMBER, FieldError.ABSENT),
+                new ToadLine("A011000016A123456789C").getErrors());
+
+        ToadLine rejected = new ToadLine("A0110?0015A12345?789C1234C B12B");
+        assertEquals(Map.of(ToadLine.ROUTING_NUMBER, FieldError.MALFORMED,
+                ToadLine.ACCOUNT_NUMBER, FieldError.MALFORMED,
+                ToadLine.AMOUNT, FieldError.MALFORMED),
+                rejected.getErrors());
+        assertEquals("1234", rejected.getCheckNumber());
+        assertFalse(rejected.isComplete());
+
+        assertEquals(Map.of(ToadLine.ROUTING_NUMBER, FieldError.ABSENT,
+                ToadLine.ACCOUNT_NUMBER, FieldError.ABSENT,
+                ToadLine.CHECK_NUMBER, FieldError.ABSENT),
+                new ToadLine("1Il 0O0 noise without symbols").getErrors());
+    }
+
+    @Test
+    public void validatesRoutingNumberBetweenTransitSymbols() {
+        assertTrue(ToadLine.hasValidRoutingNumber("C1C A011000015A"));
+        assertFalse(ToadLine.hasValidRoutingNumber("A011000016A1"));
+        assertFalse(ToadLine.hasValidRoutingNumber("A01100001A"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import de.vorb.tesseract.tools.preprocessing.binarization.IntegralSauvola;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class OrientationClassifierTest {
+
+    @Test
+    public void classifiesUprightAndUpsideDownChecks() {
+        for (String font : new String[]{Font.MONOSPACED, Font.SERIF, Font.SANS_SERIF}) {
+            OrientationEstimate upright = new OrientationClassifier().classify(check(font, false));
+            assertEquals(OrientationEstimate.Orientation.UPRIGHT, upright.getOrientation(), font);
+            assertTrue(upright.getConfidence() > 0.5, font + " " + upright);
+
+            OrientationEstimate upsideDown = new OrientationClassifier().classify(check(font, true));
+            assertEquals(OrientationEstimate.Orientation.UPSIDE_DOWN, upsideDown.getOrientation(), font);
+            assertTrue(upsideDown.getConfidence() > 0.5, font + " " + upsideDown);
+        }
+    }
+
+    @Test
+    public void blankFrameHasNoConfidence() {
+        PixelBuffer blank = new PixelBuffer().reset(300, 100, PixelBuffer.Format.BINARY);
+        Arrays.fill(blank.getData(), (byte) 0xFF);
+        assertEquals(0, new OrientationClassifier().classify(blank).getConfidence());
+    }
+
+    private static PixelBuffer check(String font, boolean upsideDown) {
+        int width = 1600;
+        int height = 700;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(230, 225, 210));
+        g.fillRect(0, 0, width, height);
+        if (upsideDown) {
+            g.rotate(Math.PI, width / 2.0, height / 2.0);
+        }
+        g.setColor(Color.DARK_GRAY);
+        g.setFont(new Font(font, Font.PLAIN, 30));
+        g.drawString("First National Bank of Somewhere", 100, 80);
+        g.drawString("Pay to the order of  ____________", 200, 250);
+        g.drawString("Memo  groceries", 100, 450);
+        g.setFont(new Font(font, Font.BOLD, 38));
+        g.drawString("1234567890 0012345678 1234", 260, 620);
+        g.dispose();
+        return new PreprocessingPipeline(new SauvolaStage(new IntegralSauvola()))
+                .run(image, new PipelineWorkspace());
+    }
+}
@@ -0,0 +1,116 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import de.vorb.tesseract.tools.preprocessing.binarization.IntegralSauvola;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+public class PreprocessingPipelineTest {
+
+    @Test
+    public void sauvolaStageMatchesBufferedImageBinarization() {
+        BufferedImage image = syntheticCheck(397, 141);
+        PipelineWorkspace workspace = new PipelineWorkspace();
+        PixelBuffer binary = new PreprocessingPipeline(new SauvolaStage(new IntegralSauvola()))
+                .run(image, workspace);
+        byte[] expected = ((DataBufferByte) new IntegralSauvola().binarize(image)
+                .getRaster().getDataBuffer()).getData();
+        assertEquals(PixelBuffer.Format.BINARY, binary.getFormat());
+        assertArrayEquals(expected, Arrays.copyOf(binary.getData(), binary.getLength()));
+    }
+
+    @Test
+    public void stagesAlternateBetweenWorkspaceBuffers() {
+        PipelineWorkspace workspace = new PipelineWorkspace();
+        PixelBuffer binary = new PreprocessingPipeline(new SauvolaStage(new IntegralSauvola()))
+                .run(syntheticCheck(64, 32), workspace);
+        PixelBuffer flipped = new FlipStage().apply(binary, workspace);
+        assertNotSame(binary, flipped);
+        assertSame(binary, workspace.spare(flipped));
+    }
+
+    @Test
+    public void reportsStagesAsTheyComplete() {
+        List<String> stages = new ArrayList<>();
+        new PreprocessingPipeline(new SauvolaStage(new IntegralSauvola()), new FlipStage())
+                .run(syntheticCheck(64, 32), new PipelineWorkspace(), stages::add);
+        assertEquals(List.of(PreprocessingPipeline.GRAYSCALE, "binarization", "flip"), stages);
+    }
+
+    @Test
+    public void flipRotatesBy180Degrees() {
+        for (int width : new int[]{1, 8, 13, 64, 101}) {
+            PixelBuffer binary = randomBinary(width, 7, width);
+            PixelBuffer flipped = BinaryTransforms.rotate180(binary, new PixelBuffer());
+            for (int y = 0; y < 7; y++) {
+                for (int x = 0; x < width; x++) {
+                    assertEquals(binary.isInk(x, y), flipped.isInk(width - 1 - x, 6 - y),
+                            "width " + width + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rotateByZeroKeepsPixels() {
+        PixelBuffer binary = randomBinary(45, 19, 5);
+        PixelBuffer rotated = BinaryTransforms.rotate(binary, 0, new PixelBuffer());
+        assertEquals(45, rotated.getWidth());
+        assertEquals(19, rotated.getHeight());
+        for (int y = 0; y < 19; y++) {
+            for (int x = 0; x < 45; x++) {
+                assertEquals(binary.isInk(x, y), rotated.isInk(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void micrBandCropCopiesBandRows() {
+        PixelBuffer binary = new PixelBuffer().reset(200, 100, PixelBuffer.Format.BINARY);
+        Arrays.fill(binary.getData(), 0, binary.getLength(), (byte) 0xFF);
+        for (int y = 85; y < 90; y++) {
+            for (int x = 20; x < 180; x += 4) {
+                binary.getData()[y * binary.getStride() + (x >> 3)] &= ~(0x80 >>> (x & 7));
+            }
+        }
+        PixelBuffer band = new MicrBandLocator().apply(binary, new PipelineWorkspace());
+        int top = new MicrBandLocator().locate(binary).orElseThrow().y;
+        assertEquals(200, band.getWidth());
+        for (int y = 0; y < band.getHeight(); y++) {
+            for (int x = 0; x < 200; x++) {
+                assertEquals(binary.isInk(x, top + y), band.isInk(x, y));
+            }
+        }
+    }
+
+    private static PixelBuffer randomBinary(int width, int height, long seed) {
+        PixelBuffer binary = new PixelBuffer().reset(width, height, PixelBuffer.Format.BINARY);
+        new Random(seed).nextBytes(binary.getData());
+        return binary;
+    }
+
+    private static BufferedImage syntheticCheck(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(228, 222, 205));
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.DARK_GRAY);
+        g.setFont(new Font(Font.MONOSPACED, Font.BOLD, 18));
+        for (int y = 20; y < height; y += 30) {
+            g.drawString("0123456789 0123456789", 5, y);
+        }
+        g.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,58 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import de.vorb.tesseract.tools.preprocessing.binarization.IntegralSauvola;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class ProjectionSkewEstimatorTest {
+
+    @Test
+    public void findsSkewOfTextLines() {
+        for (double degrees : new double[]{0, -1.1, 2.3, -4.7, 8.5, -14}) {
+            SkewEstimate skew = new ProjectionSkewEstimator().estimate(skewedCheck(degrees));
+            assertEquals(degrees, skew.getAngle(), 0.25, "skew " + degrees);
+            assertTrue(skew.getConfidence() > 0.5, "confidence " + skew.getConfidence());
+        }
+    }
+
+    @Test
+    public void blankFrameHasNoConfidence() {
+        PixelBuffer blank = new PixelBuffer().reset(300, 100, PixelBuffer.Format.BINARY);
+        Arrays.fill(blank.getData(), (byte) 0xFF);
+        SkewEstimate skew = new ProjectionSkewEstimator().estimate(blank);
+        assertEquals(0, skew.getAngle());
+        assertEquals(0, skew.getConfidence());
+    }
+
+    @Test
+    public void deskewStageLeavesLevelFrameAlone() {
+        PixelBuffer level = skewedCheck(0);
+        assertSame(level, new DeskewStage().apply(level, new PipelineWorkspace()));
+    }
+
+    private static PixelBuffer skewedCheck(double degrees) {
+        int width = 1600;
+        int height = 700;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(230, 225, 210));
+        g.fillRect(0, 0, width, height);
+        g.rotate(Math.toRadians(degrees), width / 2, height / 2);
+        g.setColor(Color.DARK_GRAY);
+        g.setFont(new Font(Font.MONOSPACED, Font.BOLD, 30));
+        g.drawString("PAY TO THE ORDER OF  ____________", 200, 250);
+        g.drawString("DATE 2024-01-01", 1000, 120);
+        g.setFont(new Font(Font.MONOSPACED, Font.BOLD, 38));
+        g.drawString("A123456789A 0012345678C 1234", 260, 600);
+        g.dispose();
+        return new PreprocessingPipeline(new SauvolaStage(new IntegralSauvola()))
+                .run(image, new PipelineWorkspace());
+    }
+}
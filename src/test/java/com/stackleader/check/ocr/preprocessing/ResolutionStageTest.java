@@ -0,0 +1,78 @@
+package com.stackleader.check.ocr.preprocessing;
+
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+public class ResolutionStageTest {
+
+    private final ResolutionStage stage = new ResolutionStage(300, 6);
+
+    @Test
+    public void reducesFramesAboveTargetResolution() {
+        PipelineWorkspace workspace = new PipelineWorkspace();
+        PixelBuffer scan = gray(3600, 1650, new Random(1));
+        PixelBuffer reduced = stage.apply(scan, workspace);
+        assertSame(workspace.spare(scan), reduced);
+        assertEquals(1800, reduced.getWidth());
+        assertEquals(825, reduced.getHeight());
+
+        // within 10% of the target
+        PixelBuffer near = gray(1950, 900, new Random(2));
+        assertSame(near, stage.apply(near, workspace));
+    }
+
+    @Test
+    public void keepsBusinessChecksAtTargetResolution() {
+        ResolutionStage businessWidth = new ResolutionStage(300, ResolutionStage.BUSINESS_CHECK_INCHES);
+        PipelineWorkspace workspace = new PipelineWorkspace();
+        // 8.5 x 3.5 inches at 300 dpi
+        PixelBuffer atTarget = gray(2550, 1050, new Random(4));
+        assertSame(atTarget, businessWidth.apply(atTarget, workspace));
+
+        // at 600 dpi, reduced to 8.5 inches at the target
+        PixelBuffer scan = gray(5100, 2100, new Random(5));
+        PixelBuffer reduced = businessWidth.apply(scan, workspace);
+        assertEquals(2550, reduced.getWidth());
+        assertEquals(1050, reduced.getHeight());
+    }
+
+    @Test
+    public void averagesCoveredArea() {
+        // 2x2 checkerboard, every output pixel covers two black and two white pixels
+        PixelBuffer checkerboard = new PixelBuffer().reset(8, 4, PixelBuffer.Format.GRAY);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 8; x++) {
+                checkerboard.getData()[y * 8 + x] = (byte) ((x + y) % 2 == 0 ? 0 : 255);
+            }
+        }
+        PixelBuffer half = ResolutionStage.areaAverage(checkerboard,
+                new PixelBuffer().reset(4, 2, PixelBuffer.Format.GRAY), new ResolutionStage.Workspace());
+        for (int i = 0; i < half.getLength(); i++) {
+            assertEquals(128, half.getData()[i] & 0xFF);
+        }
+    }
+
+    @Test
+    public void keepsMeanAtFractionalScale() {
+        PixelBuffer source = gray(1003, 457, new Random(3));
+        PixelBuffer reduced = ResolutionStage.areaAverage(source,
+                new PixelBuffer().reset(411, 187, PixelBuffer.Format.GRAY), new ResolutionStage.Workspace());
+        assertEquals(mean(source), mean(reduced), 0.5);
+    }
+
+    private static PixelBuffer gray(int width, int height, Random random) {
+        PixelBuffer frame = new PixelBuffer().reset(width, height, PixelBuffer.Format.GRAY);
+        random.nextBytes(frame.getData());
+        return frame;
+    }
+
+    private static double mean(PixelBuffer frame) {
+        long sum = 0;
+        for (int i = 0; i < frame.getLength(); i++) {
+            sum += frame.getData()[i] & 0xFF;
+        }
+        return (double) sum / frame.getLength();
+    }
+}
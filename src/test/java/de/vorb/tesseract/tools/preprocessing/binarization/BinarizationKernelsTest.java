@@ -0,0 +1,84 @@
+package de.vorb.tesseract.tools.preprocessing.binarization;
+
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class BinarizationKernelsTest {
+
+    private static final int[] LENGTHS = {1, 7, 8, 9, 63, 64, 65, 1000};
+
+    private final BinarizationKernels scalar = new ScalarBinarizationKernels();
+    private final BinarizationKernels vector = new VectorBinarizationKernels();
+    private final Random random = new Random(42);
+
+    @Test
+    public void vectorKernelsAreSelectedWhenModuleIsPresent() {
+        assertTrue(BinarizationKernels.getInstance().getName().startsWith("vector"));
+    }
+
+    @Test
+    public void thresholdMatchesScalar() {
+        for (int length : LENGTHS) {
+            byte[] pixels = randomPixels(length + 3);
+            for (int threshold : new int[]{-1, 0, 1, 127, 128, 200, 254, 255}) {
+                assertArrayEquals(
+                        threshold(scalar, pixels, length, threshold),
+                        threshold(vector, pixels, length, threshold),
+                        "length " + length + ", threshold " + threshold);
+            }
+        }
+    }
+
+    @Test
+    public void thresholdPacksMostSignificantBitFirst() {
+        byte[] pixels = {(byte) 200, 0, 0, 0, 0, 0, 0, (byte) 201, (byte) 255};
+        byte[] packed = new byte[2];
+        scalar.threshold(pixels, 0, pixels.length, 128, packed, 0);
+        assertArrayEquals(new byte[]{(byte) 0b1000_0001, (byte) 0b1000_0000}, packed);
+    }
+
+    @Test
+    public void sauvolaMatchesScalar() {
+        for (int length : LENGTHS) {
+            byte[] pixels = randomPixels(length + 5);
+            float[] mean = new float[length + 2];
+            float[] variance = new float[length + 2];
+            for (int i = 0; i < mean.length; i++) {
+                // whole numbers put many thresholds exactly on a pixel value
+                mean[i] = random.nextBoolean() ? random.nextInt(256) : random.nextFloat() * 255;
+                variance[i] = random.nextBoolean() ? 16384 : random.nextFloat() * 8000;
+            }
+            byte[] expected = new byte[(length + 7) / 8 + 1];
+            byte[] actual = new byte[expected.length];
+            scalar.sauvola(pixels, 5, mean, variance, 2, length, 0.5F, 128F, expected, 1);
+            vector.sauvola(pixels, 5, mean, variance, 2, length, 0.5F, 128F, actual, 1);
+            assertArrayEquals(expected, actual, "length " + length);
+        }
+    }
+
+    @Test
+    public void histogramMatchesScalar() {
+        byte[] pixels = randomPixels(1001);
+        int[] expected = new int[256];
+        int[] actual = new int[256];
+        for (int i = 1; i < pixels.length; i++) {
+            expected[pixels[i] & 0xFF]++;
+        }
+        vector.histogram(pixels, 1, pixels.length - 1, actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    private static byte[] threshold(BinarizationKernels kernels, byte[] pixels, int length, int threshold) {
+        byte[] packed = new byte[(length + 7) / 8];
+        kernels.threshold(pixels, 3, length, threshold, packed, 0);
+        return packed;
+    }
+
+    private byte[] randomPixels(int length) {
+        byte[] pixels = new byte[length];
+        random.nextBytes(pixels);
+        return pixels;
+    }
+}
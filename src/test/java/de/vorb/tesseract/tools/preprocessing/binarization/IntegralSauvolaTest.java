@@ -0,0 +1,100 @@
+package de.vorb.tesseract.tools.preprocessing.binarization;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+public class IntegralSauvolaTest {
+
+    @Test
+    public void diskWindowMatchesSauvolaBitForBit() {
+        for (int radius : new int[]{1, 2, 3, 7, 15}) {
+            for (int[] size : new int[][]{{1, 1}, {5, 3}, {37, 11}, {203, 97}, {640, 181}}) {
+                BufferedImage image = syntheticCheck(size[0], size[1], radius * 31L + size[0]);
+                assertArrayEquals(pixels(new Sauvola(radius).binarize(image)),
+                        pixels(new IntegralSauvola(radius).binarize(image)),
+                        "radius " + radius + ", " + size[0] + "x" + size[1]);
+            }
+        }
+    }
+
+    @Test
+    public void diskWindowMatchesSauvolaForColorInput() {
+        BufferedImage gray = syntheticCheck(421, 173, 7);
+        BufferedImage rgb = new BufferedImage(gray.getWidth(), gray.getHeight(), BufferedImage.TYPE_INT_RGB);
+        rgb.createGraphics().drawImage(gray, 0, 0, null);
+        assertArrayEquals(pixels(new Sauvola(15, 0.34F, 128F).binarize(rgb)),
+                pixels(new IntegralSauvola(15, 0.34F, 128F).binarize(rgb)));
+    }
+
+    @Test
+    public void squareWindowMatchesBruteForce() {
+        BufferedImage image = syntheticCheck(150, 61, 3);
+        int radius = 9;
+        byte[] pxs = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        BufferedImage expected = new BufferedImage(150, 61, BufferedImage.TYPE_BYTE_BINARY);
+        for (int y = 0; y < 61; y++) {
+            for (int x = 0; x < 150; x++) {
+                double sum = 0;
+                double sum2 = 0;
+                for (int dy = -radius; dy <= radius; dy++) {
+                    for (int dx = -radius; dx <= radius; dx++) {
+                        int yy = Math.min(60, Math.max(0, y + dy));
+                        int xx = Math.min(149, Math.max(0, x + dx));
+                        double v = pxs[yy * 150 + xx] & 0xFF;
+                        sum += v;
+                        sum2 += v * v;
+                    }
+                }
+                double n = (2 * radius + 1) * (2 * radius + 1);
+                float mean = (float) (sum / n);
+                float var = Math.max(0f, (float) ((sum2 - sum * sum / n) / n));
+                boolean white = (pxs[y * 150 + x] & 0xFF) > mean * (1.0 + 0.5F * ((Math.sqrt(var) / 128F) - 1.0));
+                expected.setRGB(x, y, white ? 0xFFFFFFFF : 0xFF000000);
+            }
+        }
+        IntegralSauvola square = new IntegralSauvola(radius, 0.5F, 128F, IntegralSauvola.Window.SQUARE);
+        assertArrayEquals(pixels(expected), pixels(square.binarize(image)));
+    }
+
+    @Test
+    public void binaryInputIsReturnedAsIs() {
+        BufferedImage binary = new BufferedImage(10, 10, BufferedImage.TYPE_BYTE_BINARY);
+        assertSame(binary, new IntegralSauvola().binarize(binary));
+    }
+
+    private static byte[] pixels(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Grayscale image with an uneven background, noise and dark text, similar
+     * to a phone capture of a check.
+     */
+    private static BufferedImage syntheticCheck(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        for (int x = 0; x < width; x++) {
+            int shade = 150 + 80 * x / width;
+            g.setColor(new Color(shade, shade, shade));
+            g.drawLine(x, 0, x, height);
+        }
+        g.setColor(new Color(30, 30, 30));
+        g.setFont(new Font(Font.MONOSPACED, Font.BOLD, Math.max(6, height / 5)));
+        g.drawString("C0001234C A123456780A", 2, height - 2);
+        g.dispose();
+        byte[] pxs = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < pxs.length; i++) {
+            int v = (pxs[i] & 0xFF) + random.nextInt(41) - 20;
+            pxs[i] = (byte) Math.min(255, Math.max(0, v));
+        }
+        return image;
+    }
+}
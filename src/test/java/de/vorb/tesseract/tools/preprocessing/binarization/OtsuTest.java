@@ -0,0 +1,105 @@
+package de.vorb.tesseract.tools.preprocessing.binarization;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+public class OtsuTest {
+
+    @Test
+    public void matchesPerPixelImplementation() {
+        Random random = new Random(1);
+        for (int type : new int[]{BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_INT_RGB}) {
+            for (int[] size : new int[][]{{1, 1}, {13, 5}, {301, 77}}) {
+                BufferedImage image = new BufferedImage(size[0], size[1], type);
+                for (int y = 0; y < size[1]; y++) {
+                    for (int x = 0; x < size[0]; x++) {
+                        // bimodal, like ink on paper
+                        int v = random.nextInt(4) == 0 ? random.nextInt(90) : 150 + random.nextInt(106);
+                        image.setRGB(x, y, 0xFF000000 | v << 16 | v << 8 | v);
+                    }
+                }
+                assertArrayEquals(pixels(perPixelOtsu(image)), pixels(new Otsu().binarize(image)));
+            }
+        }
+    }
+
+    @Test
+    public void packedSamplesSplitInkFromPaper() {
+        final int width = 19;
+        final int height = 3;
+        byte[] samples = new byte[width * height];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (byte) (i % 3 == 0 ? 40 : 200);
+        }
+        byte[] out = new byte[((width + 7) >> 3) * height];
+
+        new Otsu().binarize(samples, width, height, out);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean white = (out[y * 3 + (x >> 3)] & (0x80 >>> (x & 7))) != 0;
+                assertEquals((y * width + x) % 3 != 0, white, x + "," + y);
+            }
+        }
+    }
+
+    private static byte[] pixels(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * The original getRGB/setRGB implementation.
+     */
+    private static BufferedImage perPixelOtsu(BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final BufferedImage grayscale = BinarizationUtilities.imageToGrayscale(image);
+
+        final int[] histogram = new int[256];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                histogram[grayscale.getRGB(x, y) & 0xFF]++;
+            }
+        }
+
+        final int total = width * height;
+        float sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += i * histogram[i];
+        }
+        float sumB = 0;
+        int wB = 0;
+        float varMax = 0;
+        int threshold = 0;
+        for (int i = 0; i < 256; i++) {
+            wB += histogram[i];
+            if (wB == 0) {
+                continue;
+            }
+            int wF = total - wB;
+            if (wF == 0) {
+                break;
+            }
+            sumB += (float) (i * histogram[i]);
+            float mB = sumB / wB;
+            float mF = (sum - sumB) / wF;
+            float varBetween = (float) wB * (float) wF * (mB - mF) * (mB - mF);
+            if (varBetween > varMax) {
+                varMax = varBetween;
+                threshold = i;
+            }
+        }
+
+        final BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                result.setRGB(x, y, (grayscale.getRGB(x, y) & 0xFF) > threshold ? 0xFFFFFFFF : 0xFF000000);
+            }
+        }
+        return result;
+    }
+}
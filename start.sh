@@ -1,7 +1,7 @@
 #!/bin/bash
 opt_xmx=400m
 if [[ -z "$JAVA_OPTS" ]]; then
-JAVA_OPTS="-Djava.awt.headless=true -Djava.net.preferIPv4Stack=true -Xmx${opt_xmx}"
+JAVA_OPTS="-Djava.awt.headless=true -Djava.net.preferIPv4Stack=true -Xmx${opt_xmx} --add-modules jdk.incubator.vector"
 fi
 if [[ $DEBUG_JAVA == "true" ]]; then
 	JAVA_OPTS="$JAVA_OPTS -agentlib:jdwp=transport=dt_socket,address=8787,server=y,suspend=y"